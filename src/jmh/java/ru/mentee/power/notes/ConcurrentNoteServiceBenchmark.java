@@ -0,0 +1,88 @@
+package ru.mentee.power.notes;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Сравнивает пропускную способность конкурентного {@link NoteService} в одном потоке и во всех
+ * доступных потоках на смешанной нагрузке: 90% чтений по id и 10% добавлений и удалений тега.
+ *
+ * <p>Оба бенчмарка выполняют одну и ту же операцию, поэтому масштабирование видно прямо из
+ * отношения их результатов: {@code gradle jmh -Pjmh.includes=ConcurrentNoteServiceBenchmark}.
+ * На одном ядре отношение близко к единице, и это не ошибка.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentNoteServiceBenchmark {
+
+  @Param({"1000", "100000"})
+  private int notes;
+
+  private NoteService service;
+
+  /**
+   * Заполняет конкурентный сервис заметками с десятью различными тегами.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    service = new NoteService(true);
+    for (int i = 0; i < notes; i++) {
+      service.addNote("N" + i, "some text " + i, Set.of("tag" + (i % 10)));
+    }
+  }
+
+  /**
+   * Смешанная нагрузка в одном потоке.
+   */
+  @Benchmark
+  @Threads(1)
+  public Optional<Note> mixedSingleThread(Worker worker) {
+    return worker.next(this);
+  }
+
+  /**
+   * Смешанная нагрузка во всех доступных потоках.
+   */
+  @Benchmark
+  @Threads(Threads.MAX)
+  public Optional<Note> mixedAllThreads(Worker worker) {
+    return worker.next(this);
+  }
+
+  /**
+   * Состояние потока: свой генератор идентификаторов и операций.
+   */
+  @State(Scope.Thread)
+  public static class Worker {
+
+    private final SplittableRandom random = new SplittableRandom();
+
+    Optional<Note> next(ConcurrentNoteServiceBenchmark benchmark) {
+      int id = 1 + random.nextInt(benchmark.notes);
+      if (random.nextInt(10) == 0) {
+        benchmark.service.addTagToNote(id, "hot");
+        benchmark.service.removeTagFromNote(id, "hot");
+      }
+      return benchmark.service.getNoteById(id);
+    }
+  }
+}
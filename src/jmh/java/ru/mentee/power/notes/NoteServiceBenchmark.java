@@ -0,0 +1,276 @@
+package ru.mentee.power.notes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Измеряет публичные операции {@link NoteService} на заполненном сервисе.
+ *
+ * <p>Корпус строит {@link CorpusGenerator}; параметры бенчмарка — число заметок, число различных
+ * тегов и медиана длины текста. Все потоки работают с одним конкурентным сервисом; методы с
+ * суффиксом {@code Concurrent} и группа {@code readWrite} запускаются в нескольких потоках,
+ * остальные — в одном. Заметки, добавленные пишущими бенчмарками, удаляются после каждой
+ * итерации, чтобы размер корпуса не рос.
+ *
+ * <p>Полная матрица параметров велика (10 млн заметок требуют нескольких гигабайт кучи), поэтому
+ * её обычно сужают: {@code gradle jmh -Pjmh.includes=NoteServiceBenchmark.find
+ * -Pjmh.params=notes=100000}. Результаты пишутся в {@code build/reports/jmh/results.json}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NoteServiceBenchmark {
+
+  private static final long SEED = 42;
+
+  private static final int QUERIES = 1024;
+
+  @Param({"1000", "100000", "1000000", "10000000"})
+  private int notes;
+
+  @Param({"16", "1024", "65536"})
+  private int tagCardinality;
+
+  /** Медиана длины текста. */
+  @Param({"64", "1024"})
+  private int textLength;
+
+  /**
+   * Порог параллельного перебора; {@code 2147483647} отключает его, чтобы сравнить с перебором в
+   * одном потоке.
+   */
+  @Param({"8192"})
+  private int parallelScanThreshold;
+
+  private CorpusGenerator corpus;
+
+  private NoteService service;
+
+  /** Слова корпуса (не короче триграммы) для поиска по тексту. */
+  private String[] textQueries;
+
+  /** Теги случайных заметок корпуса для поиска по тегам. */
+  private List<Set<String>> tagQueries;
+
+  /**
+   * Параллельно заполняет конкурентный сервис детерминированным корпусом.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    corpus = new CorpusGenerator(SEED, tagCardinality, 1.1, textLength, 1.0, 0.7);
+    service = new NoteService(true);
+    service.setParallelScanThreshold(parallelScanThreshold);
+    corpus.populate(service, notes);
+
+    SplittableRandom random = new SplittableRandom(SEED);
+    textQueries = new String[QUERIES];
+    tagQueries = new ArrayList<>(QUERIES);
+    for (int i = 0; i < QUERIES; i++) {
+      String word;
+      do {
+        word = corpus.word(random);
+      } while (word.length() < Trigrams.LENGTH);
+      textQueries[i] = word;
+      Set<String> tags;
+      do {
+        tags = corpus.entry(random.nextInt(notes)).tags();
+      } while (tags.isEmpty());
+      tagQueries.add(tags);
+    }
+  }
+
+  /**
+   * Добавление заметки корпуса.
+   */
+  @Benchmark
+  public Note addNote(Writer writer) {
+    return writer.add(this);
+  }
+
+  /**
+   * Чтение по идентификатору.
+   */
+  @Benchmark
+  public Optional<Note> getNoteById(Reader reader) {
+    return service.getNoteById(reader.nextId(notes));
+  }
+
+  /**
+   * Поиск подстроки по индексу триграмм с проверкой кандидатов.
+   */
+  @Benchmark
+  public List<Note> findNotesByText(Reader reader) {
+    return service.findNotesByText(textQueries[reader.nextQuery()]);
+  }
+
+  /**
+   * Поиск подстроки короче триграммы: перебор всех заметок, параллельный начиная с
+   * {@code parallelScanThreshold}.
+   */
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public List<Note> findNotesByShortText(Reader reader) {
+    return service.findNotesByText(textQueries[reader.nextQuery()].substring(0,
+        Trigrams.LENGTH - 1));
+  }
+
+  /**
+   * Поиск заметок со всеми тегами одной из заметок корпуса.
+   */
+  @Benchmark
+  public List<Note> findNotesByTags(Reader reader) {
+    return service.findNotesByTags(tagQueries.get(reader.nextQuery()));
+  }
+
+  /**
+   * Набор всех тегов.
+   */
+  @Benchmark
+  public Set<String> getAllTags() {
+    return service.getAllTags();
+  }
+
+  /**
+   * Все заметки в порядке идентификаторов.
+   */
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public List<Note> getAllNotes() {
+    return service.getAllNotes();
+  }
+
+  /**
+   * Параллельное добавление: конкуренция за хранилище и индексы.
+   */
+  @Benchmark
+  @Threads(4)
+  public Note addNoteConcurrent(Writer writer) {
+    return writer.add(this);
+  }
+
+  /**
+   * Параллельное чтение по идентификатору.
+   */
+  @Benchmark
+  @Threads(4)
+  public Optional<Note> getNoteByIdConcurrent(Reader reader) {
+    return service.getNoteById(reader.nextId(notes));
+  }
+
+  /**
+   * Параллельный поиск по тексту.
+   */
+  @Benchmark
+  @Threads(4)
+  public List<Note> findNotesByTextConcurrent(Reader reader) {
+    return service.findNotesByText(textQueries[reader.nextQuery()]);
+  }
+
+  /**
+   * Параллельный поиск по тегам.
+   */
+  @Benchmark
+  @Threads(4)
+  public List<Note> findNotesByTagsConcurrent(Reader reader) {
+    return service.findNotesByTags(tagQueries.get(reader.nextQuery()));
+  }
+
+  /**
+   * Смешанная нагрузка, читающая часть: три потока ищут по тегам, пока четвёртый добавляет.
+   */
+  @Benchmark
+  @Group("readWrite")
+  @GroupThreads(3)
+  public List<Note> readWriteFind(Reader reader) {
+    return service.findNotesByTags(tagQueries.get(reader.nextQuery()));
+  }
+
+  /**
+   * Смешанная нагрузка, пишущая часть.
+   */
+  @Benchmark
+  @Group("readWrite")
+  @GroupThreads(1)
+  public Note readWriteAdd(Writer writer) {
+    return writer.add(this);
+  }
+
+  /**
+   * Состояние читающего потока: свой курсор по идентификаторам и запросам.
+   */
+  @State(Scope.Thread)
+  public static class Reader {
+
+    private int cursor;
+
+    private int query;
+
+    int nextId(int size) {
+      cursor = (cursor + 7919) % size;
+      return cursor + 1;
+    }
+
+    int nextQuery() {
+      query = (query + 1) & (QUERIES - 1);
+      return query;
+    }
+  }
+
+  /**
+   * Состояние пишущего потока: запоминает добавленные заметки, чтобы удалить их после итерации.
+   */
+  @State(Scope.Thread)
+  public static class Writer {
+
+    private int[] added = new int[1024];
+
+    private int count;
+
+    private long index;
+
+    Note add(NoteServiceBenchmark benchmark) {
+      CorpusGenerator.Entry entry = benchmark.corpus.entry(benchmark.notes + index++);
+      Note note = benchmark.service.addNote(entry.title(), entry.text(), entry.tags());
+      if (count == added.length) {
+        added = Arrays.copyOf(added, count * 2);
+      }
+      added[count++] = note.getId();
+      return note;
+    }
+
+    /**
+     * Удаляет заметки, добавленные за итерацию.
+     */
+    @TearDown(Level.Iteration)
+    public void tearDown(NoteServiceBenchmark benchmark) {
+      for (int i = 0; i < count; i++) {
+        benchmark.service.deleteNote(added[i]);
+      }
+      count = 0;
+    }
+  }
+}
@@ -0,0 +1,113 @@
+package ru.mentee.power.notes;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Сравнивает {@link IntNoteMap} и {@link ChunkedNoteStore} со стандартным {@link HashMap} в роли
+ * хранилища заметок.
+ *
+ * <p>Выделение памяти и нагрузку на GC удобно смотреть профайлером:
+ * {@code gradle jmh -Pjmh.includes=NoteStoreBenchmark -Pjmh.profilers=gc}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NoteStoreBenchmark {
+
+  @Param({"HASH_MAP", "PRIMITIVE_MAP", "CHUNKED_ARRAY"})
+  private StorageType storage;
+
+  @Param({"100000", "1000000"})
+  private int size;
+
+  private NoteStore store;
+
+  private Note[] notes;
+
+  private int cursor;
+
+  /**
+   * Заполняет хранилище заметками с последовательными идентификаторами.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    store = newStore();
+    notes = new Note[size];
+    for (int i = 0; i < size; i++) {
+      notes[i] = new Note(i + 1, "title", "text");
+      store.put(notes[i]);
+    }
+  }
+
+  /**
+   * Чтение по идентификатору.
+   */
+  @Benchmark
+  public Note get() {
+    return store.get(nextId());
+  }
+
+  /**
+   * Удаление и повторная вставка той же заметки.
+   */
+  @Benchmark
+  public Note removeAndPut() {
+    Note note = store.remove(nextId());
+    store.put(note);
+    return note;
+  }
+
+  /**
+   * Полный обход хранилища.
+   */
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public void iterate(Blackhole blackhole) {
+    for (Note note : store) {
+      blackhole.consume(note);
+    }
+  }
+
+  /**
+   * Заполнение пустого хранилища с нуля: сюда входят перестроения таблицы и весь мусор.
+   */
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public NoteStore fill() {
+    NoteStore fresh = newStore();
+    for (Note note : notes) {
+      fresh.put(note);
+    }
+    return fresh;
+  }
+
+  private NoteStore newStore() {
+    return switch (storage) {
+      case HASH_MAP -> new MapNoteStore(new HashMap<>());
+      case PRIMITIVE_MAP -> new IntNoteMap();
+      case CHUNKED_ARRAY -> new ChunkedNoteStore();
+    };
+  }
+
+  private int nextId() {
+    cursor = (cursor + 7919) % size;
+    return cursor + 1;
+  }
+}
@@ -0,0 +1,473 @@
+package ru.mentee.power.notes;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Хранилище заметок в виде массива, разбитого на блоки и индексируемого идентификатором.
+ *
+ * <p>{@link NoteService} выдаёт идентификаторы подряд, поэтому заметка с id {@code n} лежит в
+ * блоке {@code n >> CHUNK_BITS} по смещению {@code n & CHUNK_MASK}: поиск — это два обращения к
+ * массиву без хеширования и без объекта-узла на запись, а обход идёт в порядке идентификаторов.
+ *
+ * <p>Блок, из которого удалены все заметки, освобождается целиком, если все его идентификаторы уже
+ * выданы (то есть он не последний). {@link #compact()} дополнительно ужимает сильно
+ * разреженные блоки до диапазона живых записей и убирает освобождённые блоки из начала каталога.
+ *
+ * <p>Хранилище потокобезопасно: каталог блоков неизменяем и публикуется через {@code volatile},
+ * ячейки блока — {@link AtomicReferenceArray}, поэтому чтение не берёт блокировок. Запись
+ * синхронизируется на блоке, а перестройка каталога — на самом хранилище (всегда в порядке
+ * «блок → хранилище»).
+ */
+final class ChunkedNoteStore implements NoteStore {
+
+  static final int CHUNK_BITS = 12;
+
+  static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+  static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+  /** Блок ужимается при компактификации, если живые записи занимают меньше 1/4 его ячеек. */
+  private static final int COMPACT_RATIO = 4;
+
+  private volatile Directory directory = new Directory(0, new Chunk[0]);
+
+  private final AtomicInteger size = new AtomicInteger();
+
+  @Override
+  public Note get(int id) {
+    if (id < 0) {
+      return null;
+    }
+    Chunk chunk = directory.chunk(id >>> CHUNK_BITS);
+    return chunk != null ? chunk.get(id & CHUNK_MASK) : null;
+  }
+
+  @Override
+  public void put(Note note) {
+    int id = note.getId();
+    if (id < 0) {
+      throw new IllegalArgumentException("Note id must not be negative: " + id);
+    }
+    int offset = id & CHUNK_MASK;
+    while (true) {
+      Chunk chunk = chunkForWrite(id >>> CHUNK_BITS, offset);
+      synchronized (chunk) {
+        if (chunk.retired) {
+          // Блок только что освобождён или заменён — берём актуальный.
+          continue;
+        }
+        if (chunk.slots.getAndSet(offset - chunk.from, note) == null) {
+          chunk.live++;
+          size.incrementAndGet();
+        }
+        return;
+      }
+    }
+  }
+
+  @Override
+  public Note remove(int id) {
+    if (id < 0) {
+      return null;
+    }
+    Chunk chunk = directory.chunk(id >>> CHUNK_BITS);
+    if (chunk == null) {
+      return null;
+    }
+    synchronized (chunk) {
+      int slot = (id & CHUNK_MASK) - chunk.from;
+      if (chunk.retired || slot < 0 || slot >= chunk.slots.length()) {
+        return null;
+      }
+      Note removed = chunk.slots.getAndSet(slot, null);
+      if (removed != null) {
+        chunk.live--;
+        size.decrementAndGet();
+        if (chunk.live == 0 && chunk.index < lastChunkIndex()) {
+          chunk.retired = true;
+          replace(chunk, null);
+        }
+      }
+      return removed;
+    }
+  }
+
+  @Override
+  public int size() {
+    return size.get();
+  }
+
+  /**
+   * Ужимает разреженные блоки и убирает освобождённые блоки из начала каталога.
+   *
+   * <p>Записи не перемещаются между идентификаторами, освобождаются только пустые ячейки.
+   * Безопасно вызывать параллельно с чтением и записью.
+   */
+  @Override
+  public void compact() {
+    int last = lastChunkIndex();
+    for (Chunk chunk : directory.chunks) {
+      if (chunk != null && chunk.index < last) {
+        compactChunk(chunk);
+      }
+    }
+    synchronized (this) {
+      Chunk[] chunks = directory.chunks;
+      int leading = 0;
+      while (leading < chunks.length && chunks[leading] == null) {
+        leading++;
+      }
+      if (leading > 0) {
+        Chunk[] trimmed = new Chunk[chunks.length - leading];
+        System.arraycopy(chunks, leading, trimmed, 0, trimmed.length);
+        directory = new Directory(directory.base + leading, trimmed);
+      }
+    }
+  }
+
+  /**
+   * Обходит диапазон по блокам каталога: освобождённые блоки и начало каталога, убранное
+   * компактификацией, пропускаются целиком, а не по одному идентификатору.
+   */
+  @Override
+  public void forEachInRange(int fromId, int toId, Predicate<Note> visitor) {
+    Directory current = directory;
+    long id = Math.max(fromId, (long) current.base << CHUNK_BITS);
+    while (id < toId) {
+      long chunkEnd = Math.min(toId, (id | CHUNK_MASK) + 1);
+      Chunk chunk = current.chunk((int) (id >>> CHUNK_BITS));
+      if (chunk != null) {
+        for (; id < chunkEnd; id++) {
+          Note note = chunk.get((int) (id & CHUNK_MASK));
+          if (note != null && !visitor.test(note)) {
+            return;
+          }
+        }
+      }
+      id = chunkEnd;
+    }
+  }
+
+  /**
+   * Обходит заметки в порядке возрастания идентификаторов.
+   *
+   * <p>Обход слабо согласован: он не блокирует запись и видит часть изменений, сделанных после
+   * его начала.
+   */
+  @Override
+  public Iterator<Note> iterator() {
+    return new Iterator<>() {
+      private final Chunk[] chunks = directory.chunks;
+
+      private int chunkIndex;
+
+      private int slot = -1;
+
+      private Note next = advance();
+
+      @Override
+      public boolean hasNext() {
+        return next != null;
+      }
+
+      @Override
+      public Note next() {
+        if (next == null) {
+          throw new NoSuchElementException();
+        }
+        Note current = next;
+        next = advance();
+        return current;
+      }
+
+      private Note advance() {
+        while (chunkIndex < chunks.length) {
+          Chunk chunk = chunks[chunkIndex];
+          if (chunk != null) {
+            while (++slot < chunk.slots.length()) {
+              Note note = chunk.slots.get(slot);
+              if (note != null) {
+                return note;
+              }
+            }
+          }
+          chunkIndex++;
+          slot = -1;
+        }
+        return null;
+      }
+    };
+  }
+
+  /**
+   * Возвращает разделитель в порядке возрастания идентификаторов с теми же гарантиями, что и
+   * {@link #iterator()}.
+   *
+   * <p>Делится пополам по диапазону позиций каталога, снятого при первом обращении, вплоть до
+   * отдельных ячеек блока, поэтому параллельный обход загружает потоки равномерно и на
+   * хранилище из одного блока.
+   */
+  @Override
+  public Spliterator<Note> spliterator() {
+    return new ChunkSpliterator(this, 0, -1, 0);
+  }
+
+  private Chunk chunkForWrite(int index, int offset) {
+    Chunk chunk = directory.chunk(index);
+    if (chunk != null && chunk.covers(offset)) {
+      return chunk;
+    }
+    if (chunk != null) {
+      return expand(chunk);
+    }
+    synchronized (this) {
+      chunk = directory.chunk(index);
+      if (chunk != null) {
+        return chunk;
+      }
+      Chunk created = new Chunk(index, 0, CHUNK_SIZE);
+      install(created);
+      return created;
+    }
+  }
+
+  /**
+   * Возвращает ужатый блок к полному размеру, чтобы в него можно было писать по любому смещению.
+   */
+  private Chunk expand(Chunk chunk) {
+    synchronized (chunk) {
+      if (chunk.retired) {
+        // Вызывающий увидит флаг и повторит попытку с актуальным блоком.
+        return chunk;
+      }
+      Chunk full = new Chunk(chunk.index, 0, CHUNK_SIZE);
+      copy(chunk, full);
+      chunk.retired = true;
+      replace(chunk, full);
+      return full;
+    }
+  }
+
+  private void compactChunk(Chunk chunk) {
+    synchronized (chunk) {
+      if (chunk.retired || chunk.live * COMPACT_RATIO >= chunk.slots.length()) {
+        return;
+      }
+      if (chunk.live == 0) {
+        // Блок опустел, пока был последним, и не был освобождён при удалении.
+        chunk.retired = true;
+        replace(chunk, null);
+        return;
+      }
+      int first = 0;
+      while (chunk.slots.get(first) == null) {
+        first++;
+      }
+      int last = chunk.slots.length() - 1;
+      while (chunk.slots.get(last) == null) {
+        last--;
+      }
+      if ((last - first + 1) * 2 > chunk.slots.length()) {
+        return;
+      }
+      Chunk compacted = new Chunk(chunk.index, chunk.from + first, last - first + 1);
+      copy(chunk, compacted);
+      chunk.retired = true;
+      replace(chunk, compacted);
+    }
+  }
+
+  private static void copy(Chunk from, Chunk to) {
+    for (int i = 0; i < from.slots.length(); i++) {
+      Note note = from.slots.get(i);
+      if (note != null) {
+        to.slots.set(from.from + i - to.from, note);
+      }
+    }
+    to.live = from.live;
+  }
+
+  private synchronized void install(Chunk chunk) {
+    Directory current = directory;
+    if (current.chunks.length == 0) {
+      directory = new Directory(chunk.index, new Chunk[] {chunk});
+      return;
+    }
+    int first = Math.min(current.base, chunk.index);
+    int last = Math.max(current.base + current.chunks.length - 1, chunk.index);
+    Chunk[] chunks = new Chunk[last - first + 1];
+    System.arraycopy(current.chunks, 0, chunks, current.base - first, current.chunks.length);
+    chunks[chunk.index - first] = chunk;
+    directory = new Directory(first, chunks);
+  }
+
+  private synchronized void replace(Chunk old, Chunk replacement) {
+    Directory current = directory;
+    Chunk[] chunks = current.chunks.clone();
+    int position = old.index - current.base;
+    if (position >= 0 && position < chunks.length && chunks[position] == old) {
+      chunks[position] = replacement;
+      directory = new Directory(current.base, chunks);
+    }
+  }
+
+  private int lastChunkIndex() {
+    Directory current = directory;
+    return current.base + current.chunks.length - 1;
+  }
+
+  /**
+   * Неизменяемый каталог блоков: {@code chunks[i]} — блок с номером {@code base + i} или
+   * {@code null}, если блок освобождён.
+   */
+  private record Directory(int base, Chunk[] chunks) {
+
+    Chunk chunk(int index) {
+      int position = index - base;
+      return position >= 0 && position < chunks.length ? chunks[position] : null;
+    }
+  }
+
+  /**
+   * Разделитель по позициям {@code [index, fence)} каталога: позиция {@code p} — ячейка со
+   * смещением {@code p & CHUNK_MASK} в блоке {@code chunks[p >> CHUNK_BITS]}. Каталог читается при
+   * первом обращении ({@code fence < 0}); блоки, заменённые после этого, обходятся в том виде, в
+   * каком были сняты.
+   */
+  private static final class ChunkSpliterator implements Spliterator<Note> {
+
+    private final ChunkedNoteStore store;
+
+    private Chunk[] chunks;
+
+    private long index;
+
+    private long fence;
+
+    private long estimate;
+
+    ChunkSpliterator(ChunkedNoteStore store, long index, long fence, long estimate) {
+      this.store = store;
+      this.index = index;
+      this.fence = fence;
+      this.estimate = estimate;
+    }
+
+    private long fence() {
+      if (fence < 0) {
+        chunks = store.directory.chunks;
+        fence = (long) chunks.length << CHUNK_BITS;
+        estimate = store.size();
+      }
+      return fence;
+    }
+
+    @Override
+    public Spliterator<Note> trySplit() {
+      long hi = fence();
+      long mid = (index + hi) >>> 1;
+      if (mid <= index) {
+        return null;
+      }
+      estimate >>>= 1;
+      ChunkSpliterator prefix = new ChunkSpliterator(store, index, mid, estimate);
+      prefix.chunks = chunks;
+      index = mid;
+      return prefix;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Note> action) {
+      long hi = fence();
+      while (index < hi) {
+        long position = index;
+        Chunk chunk = chunks[(int) (position >>> CHUNK_BITS)];
+        if (chunk == null) {
+          index = Math.min(hi, (position | CHUNK_MASK) + 1);
+          continue;
+        }
+        index++;
+        Note note = chunk.get((int) (position & CHUNK_MASK));
+        if (note != null) {
+          action.accept(note);
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super Note> action) {
+      long hi = fence();
+      long position = index;
+      index = hi;
+      while (position < hi) {
+        long chunkEnd = Math.min(hi, (position | CHUNK_MASK) + 1);
+        Chunk chunk = chunks[(int) (position >>> CHUNK_BITS)];
+        if (chunk != null) {
+          int from = Math.max(0, (int) (position & CHUNK_MASK) - chunk.from);
+          int to = Math.min(chunk.slots.length(),
+              (int) ((chunkEnd - 1) & CHUNK_MASK) + 1 - chunk.from);
+          for (int slot = from; slot < to; slot++) {
+            Note note = chunk.slots.get(slot);
+            if (note != null) {
+              action.accept(note);
+            }
+          }
+        }
+        position = chunkEnd;
+      }
+    }
+
+    @Override
+    public long estimateSize() {
+      fence();
+      return estimate;
+    }
+
+    @Override
+    public int characteristics() {
+      return Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL
+          | Spliterator.CONCURRENT;
+    }
+  }
+
+  /**
+   * Блок ячеек для идентификаторов, начиная с {@code (index << CHUNK_BITS) + from}.
+   */
+  private static final class Chunk {
+
+    final int index;
+
+    final int from;
+
+    final AtomicReferenceArray<Note> slots;
+
+    /** Число занятых ячеек; изменяется под монитором блока. */
+    int live;
+
+    /** Блок освобождён или заменён другим; изменяется под монитором блока. */
+    boolean retired;
+
+    Chunk(int index, int from, int length) {
+      this.index = index;
+      this.from = from;
+      this.slots = new AtomicReferenceArray<>(length);
+    }
+
+    boolean covers(int offset) {
+      return offset >= from && offset < from + slots.length();
+    }
+
+    Note get(int offset) {
+      int slot = offset - from;
+      return slot >= 0 && slot < slots.length() ? slots.get(slot) : null;
+    }
+  }
+}
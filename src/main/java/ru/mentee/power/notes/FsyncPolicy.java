@@ -0,0 +1,30 @@
+package ru.mentee.power.notes;
+
+/**
+ * Когда журнал изменений {@link NoteService} сбрасывается на диск вызовом {@code fsync}.
+ *
+ * <p>Чем реже сброс, тем выше пропускная способность записи и тем больше последних изменений
+ * может потеряться при сбое питания или ОС. Падение самого процесса журнал переживает при любой
+ * политике: записанные данные уже лежат в кеше ОС.
+ */
+public enum FsyncPolicy {
+
+  /**
+   * Сброс после каждой операции: изменение возвращается вызывающему только после того, как
+   * попало на диск. Самый надёжный вариант. Операции, которые разные потоки выполняют
+   * одновременно, записываются и сбрасываются на диск одним пакетом, поэтому многопоточная
+   * запись не упирается в число {@code fsync} в секунду.
+   */
+  PER_OPERATION,
+
+  /**
+   * Сброс фоновым потоком раз в секунду: при сбое теряется не больше изменений, чем сделано за
+   * последнюю секунду.
+   */
+  PERIODIC,
+
+  /**
+   * Сброс только при закрытии сервиса; в остальное время момент записи на диск выбирает ОС.
+   */
+  NONE
+}
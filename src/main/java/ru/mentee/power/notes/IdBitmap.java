@@ -0,0 +1,1179 @@
+package ru.mentee.power.notes;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Сжатое множество неотрицательных идентификаторов в стиле Roaring bitmap.
+ *
+ * <p>Идентификатор делится на старшие 16 бит (ключ блока) и младшие 16 бит (значение в блоке).
+ * Каждый блок хранится в одном из трёх представлений, которое выбирается по плотности данных:
+ * <ul>
+ *   <li>{@link ArrayContainer} — отсортированный массив {@code char[]}, до {@value #ARRAY_MAX}
+ *       значений (2 байта на значение);</li>
+ *   <li>{@link BitmapContainer} — битовая карта на 65536 бит (8 КБ), если значений больше;</li>
+ *   <li>{@link RunContainer} — список отрезков «начало, длина» для подряд идущих значений.</li>
+ * </ul>
+ * Пересечение, объединение и разность выполняются поблочно и сразу в подходящем представлении:
+ * массивы и списки отрезков сливаются как отсортированные последовательности, массив проверяется
+ * по битовой карте поштучно, а битовые карты объединяются словами по 64 бита. Битовая карта
+ * создаётся, только если в результате больше {@value #ARRAY_MAX} значений и отрезки не
+ * компактнее: запросы по редким тегам не выделяют по 8 КБ на блок.
+ *
+ * <p>Класс не потокобезопасен.
+ */
+final class IdBitmap {
+
+  /** Максимальное число значений в {@link ArrayContainer}. */
+  static final int ARRAY_MAX = 4096;
+
+  private static final int BITMAP_WORDS = 1 << 10;
+
+  private char[] keys;
+
+  private Container[] containers;
+
+  private int size;
+
+  private int cardinality;
+
+  /**
+   * Создаёт пустое множество.
+   */
+  IdBitmap() {
+    this(4);
+  }
+
+  private IdBitmap(int capacity) {
+    keys = new char[capacity];
+    containers = new Container[capacity];
+  }
+
+  /**
+   * Создаёт множество из перечисленных идентификаторов.
+   *
+   * @param ids идентификаторы
+   * @return новое множество
+   */
+  static IdBitmap of(int... ids) {
+    IdBitmap bitmap = new IdBitmap();
+    for (int id : ids) {
+      bitmap.add(id);
+    }
+    return bitmap;
+  }
+
+  /**
+   * Добавляет идентификатор.
+   *
+   * @param id неотрицательный идентификатор
+   * @return {@code true}, если его ещё не было
+   */
+  boolean add(int id) {
+    char low = (char) id;
+    char high = (char) (id >>> 16);
+    int i = size > 0 && keys[size - 1] == high ? size - 1 : find(high);
+    if (i >= 0) {
+      Container container = containers[i];
+      if (container.contains(low)) {
+        return false;
+      }
+      containers[i] = container.add(low);
+    } else {
+      insert(-i - 1, (char) (id >>> 16), new ArrayContainer().add(low));
+    }
+    cardinality++;
+    return true;
+  }
+
+  /**
+   * Добавляет все идентификаторы другого множества (объединение на месте). Блоки объединяются
+   * целиком; битовая карта дополняется без копирования.
+   *
+   * @param other добавляемое множество; не изменяется
+   */
+  void addAll(IdBitmap other) {
+    for (int j = 0; j < other.size; j++) {
+      Container addition = other.containers[j];
+      int i = find(other.keys[j]);
+      if (i < 0) {
+        insert(-i - 1, other.keys[j], addition.copy());
+        cardinality += addition.cardinality();
+        continue;
+      }
+      Container container = containers[i];
+      cardinality -= container.cardinality();
+      if (container instanceof BitmapContainer bitmap) {
+        if (addition instanceof BitmapContainer words) {
+          bitmap.orWords(words);
+        } else {
+          addition.forEach(0, value -> bitmap.set((char) value));
+        }
+      } else {
+        container = container.or(addition);
+        containers[i] = container;
+      }
+      cardinality += container.cardinality();
+    }
+  }
+
+  /**
+   * Удаляет идентификатор.
+   *
+   * @param id идентификатор
+   * @return {@code true}, если он был
+   */
+  boolean remove(int id) {
+    char low = (char) id;
+    int i = find((char) (id >>> 16));
+    if (i < 0 || !containers[i].contains(low)) {
+      return false;
+    }
+    Container container = containers[i].remove(low);
+    if (container.cardinality() == 0) {
+      delete(i);
+    } else {
+      containers[i] = container;
+    }
+    cardinality--;
+    return true;
+  }
+
+  /**
+   * Проверяет наличие идентификатора.
+   *
+   * @param id идентификатор
+   * @return {@code true}, если он есть в множестве
+   */
+  boolean contains(int id) {
+    int i = find((char) (id >>> 16));
+    return i >= 0 && containers[i].contains((char) id);
+  }
+
+  /**
+   * Находит наименьший идентификатор множества, не меньший заданного.
+   *
+   * <p>Стоимость — двоичный поиск блока и поиск внутри одного-двух блоков, поэтому так можно
+   * обходить множество по порядку с любого места, не перебирая его начало.
+   *
+   * @param id нижняя граница включительно
+   * @return найденный идентификатор или -1, если таких нет
+   */
+  int ceiling(int id) {
+    if (id < 0) {
+      id = 0;
+    }
+    int i = find((char) (id >>> 16));
+    if (i >= 0) {
+      int value = containers[i].ceiling((char) id);
+      if (value >= 0) {
+        return keys[i] << 16 | value;
+      }
+      i++;
+    } else {
+      i = -i - 1;
+    }
+    return i < size ? keys[i] << 16 | containers[i].ceiling((char) 0) : -1;
+  }
+
+  /**
+   * Возвращает число идентификаторов.
+   *
+   * @return мощность множества
+   */
+  int cardinality() {
+    return cardinality;
+  }
+
+  /**
+   * Проверяет, пусто ли множество.
+   *
+   * @return {@code true}, если идентификаторов нет
+   */
+  boolean isEmpty() {
+    return cardinality == 0;
+  }
+
+  /**
+   * Возвращает независимую копию множества.
+   *
+   * @return копия
+   */
+  IdBitmap copy() {
+    IdBitmap copy = new IdBitmap(Math.max(size, 1));
+    for (int i = 0; i < size; i++) {
+      copy.append(keys[i], containers[i].copy());
+    }
+    return copy;
+  }
+
+  /**
+   * Переводит блоки, состоящие из длинных отрезков, в компактное представление отрезками.
+   */
+  void runOptimize() {
+    for (int i = 0; i < size; i++) {
+      containers[i] = containers[i].runOptimize();
+    }
+  }
+
+  /**
+   * Пересечение множеств.
+   *
+   * @param a первое множество
+   * @param b второе множество
+   * @return новое множество {@code a ∩ b}
+   */
+  static IdBitmap and(IdBitmap a, IdBitmap b) {
+    IdBitmap result = new IdBitmap(Math.max(1, Math.min(a.size, b.size)));
+    int i = 0;
+    int j = 0;
+    while (i < a.size && j < b.size) {
+      if (a.keys[i] < b.keys[j]) {
+        i++;
+      } else if (a.keys[i] > b.keys[j]) {
+        j++;
+      } else {
+        result.appendIfNotEmpty(a.keys[i], a.containers[i].and(b.containers[j]));
+        i++;
+        j++;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Объединение множеств.
+   *
+   * @param a первое множество
+   * @param b второе множество
+   * @return новое множество {@code a ∪ b}
+   */
+  static IdBitmap or(IdBitmap a, IdBitmap b) {
+    IdBitmap result = new IdBitmap(Math.max(1, a.size + b.size));
+    int i = 0;
+    int j = 0;
+    while (i < a.size || j < b.size) {
+      if (j >= b.size || i < a.size && a.keys[i] < b.keys[j]) {
+        result.append(a.keys[i], a.containers[i].copy());
+        i++;
+      } else if (i >= a.size || a.keys[i] > b.keys[j]) {
+        result.append(b.keys[j], b.containers[j].copy());
+        j++;
+      } else {
+        result.append(a.keys[i], a.containers[i].or(b.containers[j]));
+        i++;
+        j++;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Разность множеств.
+   *
+   * @param a уменьшаемое
+   * @param b вычитаемое
+   * @return новое множество {@code a \ b}
+   */
+  static IdBitmap andNot(IdBitmap a, IdBitmap b) {
+    IdBitmap result = new IdBitmap(Math.max(1, a.size));
+    int j = 0;
+    for (int i = 0; i < a.size; i++) {
+      while (j < b.size && b.keys[j] < a.keys[i]) {
+        j++;
+      }
+      if (j < b.size && b.keys[j] == a.keys[i]) {
+        result.appendIfNotEmpty(a.keys[i], a.containers[i].andNot(b.containers[j]));
+      } else {
+        result.append(a.keys[i], a.containers[i].copy());
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Передаёт идентификаторы действию в порядке возрастания.
+   *
+   * @param action действие
+   */
+  void forEach(IntConsumer action) {
+    for (int i = 0; i < size; i++) {
+      containers[i].forEach(keys[i] << 16, action);
+    }
+  }
+
+  /**
+   * Возвращает идентификаторы массивом.
+   *
+   * @return идентификаторы по возрастанию
+   */
+  int[] toArray() {
+    int[] result = new int[cardinality];
+    int[] position = {0};
+    forEach(id -> result[position[0]++] = id);
+    return result;
+  }
+
+  private int find(char key) {
+    return Arrays.binarySearch(keys, 0, size, key);
+  }
+
+  private void insert(int index, char key, Container container) {
+    if (size == keys.length) {
+      keys = Arrays.copyOf(keys, size * 2);
+      containers = Arrays.copyOf(containers, size * 2);
+    }
+    System.arraycopy(keys, index, keys, index + 1, size - index);
+    System.arraycopy(containers, index, containers, index + 1, size - index);
+    keys[index] = key;
+    containers[index] = container;
+    size++;
+  }
+
+  private void delete(int index) {
+    System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+    System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+    size--;
+    containers[size] = null;
+  }
+
+  private void append(char key, Container container) {
+    insert(size, key, container);
+    cardinality += container.cardinality();
+  }
+
+  private void appendIfNotEmpty(char key, Container container) {
+    if (container.cardinality() > 0) {
+      append(key, container);
+    }
+  }
+
+  /**
+   * Блок из не более чем 65536 значений с общими старшими 16 битами.
+   *
+   * <p>Изменяющие операции могут вернуть блок другого представления; вызывающий обязан заменить
+   * старый блок результатом.
+   */
+  private abstract static class Container {
+
+    abstract int cardinality();
+
+    abstract boolean contains(char value);
+
+    /** Наименьшее значение блока, не меньшее {@code value}, или -1. */
+    abstract int ceiling(char value);
+
+    /** Добавляет отсутствующее значение. */
+    abstract Container add(char value);
+
+    /** Удаляет присутствующее значение. */
+    abstract Container remove(char value);
+
+    abstract Container copy();
+
+    abstract void forEach(int base, IntConsumer action);
+
+    /** Возвращает новую битовую карту с теми же значениями. */
+    abstract BitmapContainer toBitmap();
+
+    /** Возвращает самое компактное представление тех же значений; может вернуть этот блок. */
+    abstract Container runOptimize();
+
+    abstract Container and(Container other);
+
+    Container or(Container other) {
+      BitmapContainer result = toBitmap();
+      if (other instanceof BitmapContainer bitmap) {
+        result.orWords(bitmap);
+      } else {
+        other.forEach(0, value -> result.set((char) value));
+      }
+      return result.optimize();
+    }
+
+    Container andNot(Container other) {
+      BitmapContainer result = toBitmap();
+      if (other instanceof BitmapContainer bitmap) {
+        result.andNotWords(bitmap);
+      } else {
+        other.forEach(0, value -> result.clear((char) value));
+      }
+      return result.optimize();
+    }
+  }
+
+  /**
+   * Разреженный блок: отсортированный массив значений.
+   */
+  private static final class ArrayContainer extends Container {
+
+    private char[] values;
+
+    private int cardinality;
+
+    ArrayContainer() {
+      this(new char[4], 0);
+    }
+
+    ArrayContainer(char[] values, int cardinality) {
+      this.values = values;
+      this.cardinality = cardinality;
+    }
+
+    @Override
+    int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    boolean contains(char value) {
+      return cardinality > 0 && value <= values[cardinality - 1]
+          && Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+    }
+
+    @Override
+    int ceiling(char value) {
+      int index = Arrays.binarySearch(values, 0, cardinality, value);
+      if (index < 0) {
+        index = -index - 1;
+      }
+      return index < cardinality ? values[index] : -1;
+    }
+
+    @Override
+    Container add(char value) {
+      if (cardinality == ARRAY_MAX) {
+        BitmapContainer bitmap = toBitmap();
+        bitmap.set(value);
+        return bitmap;
+      }
+      // Идентификаторы выдаются по возрастанию, поэтому чаще всего значение дописывается в конец.
+      int index = cardinality == 0 || value > values[cardinality - 1] ? cardinality
+          : -Arrays.binarySearch(values, 0, cardinality, value) - 1;
+      if (cardinality == values.length) {
+        values = Arrays.copyOf(values, Math.min(ARRAY_MAX, cardinality * 2));
+      }
+      System.arraycopy(values, index, values, index + 1, cardinality - index);
+      values[index] = value;
+      cardinality++;
+      return this;
+    }
+
+    @Override
+    Container remove(char value) {
+      int index = Arrays.binarySearch(values, 0, cardinality, value);
+      System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+      cardinality--;
+      return this;
+    }
+
+    @Override
+    Container copy() {
+      return new ArrayContainer(Arrays.copyOf(values, Math.max(cardinality, 1)), cardinality);
+    }
+
+    @Override
+    void forEach(int base, IntConsumer action) {
+      for (int i = 0; i < cardinality; i++) {
+        action.accept(base | values[i]);
+      }
+    }
+
+    @Override
+    BitmapContainer toBitmap() {
+      BitmapContainer bitmap = new BitmapContainer();
+      for (int i = 0; i < cardinality; i++) {
+        bitmap.set(values[i]);
+      }
+      return bitmap;
+    }
+
+    @Override
+    Container runOptimize() {
+      int runs = 0;
+      for (int i = 0; i < cardinality; i++) {
+        if (i == 0 || values[i] != values[i - 1] + 1) {
+          runs++;
+        }
+      }
+      if (4 * runs >= 2 * cardinality) {
+        return this;
+      }
+      RunBuilder result = new RunBuilder(runs);
+      for (int i = 0; i < cardinality; i++) {
+        result.add(values[i], values[i]);
+      }
+      return result.build();
+    }
+
+    @Override
+    Container and(Container other) {
+      char[] result = new char[Math.max(1, Math.min(cardinality, other.cardinality()))];
+      int count = 0;
+      if (other instanceof ArrayContainer array) {
+        int i = 0;
+        int j = 0;
+        while (i < cardinality && j < array.cardinality) {
+          if (values[i] < array.values[j]) {
+            i++;
+          } else if (values[i] > array.values[j]) {
+            j++;
+          } else {
+            result[count++] = values[i++];
+            j++;
+          }
+        }
+        return new ArrayContainer(result, count);
+      }
+      for (int i = 0; i < cardinality && count < result.length; i++) {
+        if (other.contains(values[i])) {
+          result[count++] = values[i];
+        }
+      }
+      return new ArrayContainer(result, count);
+    }
+
+    @Override
+    Container or(Container other) {
+      if (other instanceof ArrayContainer array) {
+        char[] merged = new char[Math.max(1, cardinality + array.cardinality)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < cardinality || j < array.cardinality) {
+          if (j >= array.cardinality || i < cardinality && values[i] < array.values[j]) {
+            merged[count++] = values[i++];
+          } else if (i >= cardinality || values[i] > array.values[j]) {
+            merged[count++] = array.values[j++];
+          } else {
+            merged[count++] = values[i++];
+            j++;
+          }
+        }
+        if (count <= ARRAY_MAX) {
+          return new ArrayContainer(merged, count);
+        }
+        BitmapContainer bitmap = new BitmapContainer();
+        for (int k = 0; k < count; k++) {
+          bitmap.set(merged[k]);
+        }
+        return bitmap;
+      }
+      return other.or(this);
+    }
+
+    @Override
+    Container andNot(Container other) {
+      char[] result = new char[Math.max(1, cardinality)];
+      int count = 0;
+      if (other instanceof ArrayContainer array) {
+        int j = 0;
+        for (int i = 0; i < cardinality; i++) {
+          while (j < array.cardinality && array.values[j] < values[i]) {
+            j++;
+          }
+          if (j == array.cardinality || array.values[j] != values[i]) {
+            result[count++] = values[i];
+          }
+        }
+        return new ArrayContainer(result, count);
+      }
+      for (int i = 0; i < cardinality; i++) {
+        if (!other.contains(values[i])) {
+          result[count++] = values[i];
+        }
+      }
+      return new ArrayContainer(result, count);
+    }
+  }
+
+  /**
+   * Плотный блок: битовая карта на 65536 значений.
+   */
+  private static final class BitmapContainer extends Container {
+
+    private final long[] words;
+
+    private int cardinality;
+
+    BitmapContainer() {
+      this(new long[BITMAP_WORDS], 0);
+    }
+
+    BitmapContainer(long[] words, int cardinality) {
+      this.words = words;
+      this.cardinality = cardinality;
+    }
+
+    @Override
+    int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    boolean contains(char value) {
+      return (words[value >>> 6] & (1L << value)) != 0;
+    }
+
+    @Override
+    int ceiling(char value) {
+      int w = value >>> 6;
+      long word = words[w] & (-1L << value);
+      while (word == 0) {
+        if (++w == words.length) {
+          return -1;
+        }
+        word = words[w];
+      }
+      return (w << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    @Override
+    Container add(char value) {
+      set(value);
+      return this;
+    }
+
+    @Override
+    Container remove(char value) {
+      clear(value);
+      if (cardinality <= ARRAY_MAX) {
+        return toArray();
+      }
+      return this;
+    }
+
+    @Override
+    Container copy() {
+      return new BitmapContainer(words.clone(), cardinality);
+    }
+
+    @Override
+    void forEach(int base, IntConsumer action) {
+      for (int w = 0; w < words.length; w++) {
+        long word = words[w];
+        while (word != 0) {
+          action.accept(base | (w << 6) + Long.numberOfTrailingZeros(word));
+          word &= word - 1;
+        }
+      }
+    }
+
+    @Override
+    BitmapContainer toBitmap() {
+      return new BitmapContainer(words.clone(), cardinality);
+    }
+
+    @Override
+    Container runOptimize() {
+      return optimize();
+    }
+
+    @Override
+    Container and(Container other) {
+      if (other instanceof BitmapContainer bitmap) {
+        return combine(bitmap, false);
+      }
+      return other.and(this);
+    }
+
+    @Override
+    Container andNot(Container other) {
+      if (other instanceof BitmapContainer bitmap) {
+        return combine(bitmap, true);
+      }
+      return super.andNot(other);
+    }
+
+    /**
+     * Пересечение или разность двух битовых карт. Мощность результата считается заранее, и при
+     * малом результате сразу строится массив, без промежуточной битовой карты.
+     */
+    private Container combine(BitmapContainer other, boolean andNot) {
+      int count = 0;
+      for (int w = 0; w < words.length; w++) {
+        count += Long.bitCount(words[w] & (andNot ? ~other.words[w] : other.words[w]));
+      }
+      if (count <= ARRAY_MAX) {
+        char[] values = new char[Math.max(1, count)];
+        int k = 0;
+        for (int w = 0; w < words.length; w++) {
+          long word = words[w] & (andNot ? ~other.words[w] : other.words[w]);
+          while (word != 0) {
+            values[k++] = (char) ((w << 6) + Long.numberOfTrailingZeros(word));
+            word &= word - 1;
+          }
+        }
+        return new ArrayContainer(values, count);
+      }
+      long[] result = new long[BITMAP_WORDS];
+      for (int w = 0; w < words.length; w++) {
+        result[w] = words[w] & (andNot ? ~other.words[w] : other.words[w]);
+      }
+      return new BitmapContainer(result, count).optimize();
+    }
+
+    void set(char value) {
+      long before = words[value >>> 6];
+      long after = before | (1L << value);
+      words[value >>> 6] = after;
+      if (before != after) {
+        cardinality++;
+      }
+    }
+
+    void clear(char value) {
+      long before = words[value >>> 6];
+      long after = before & ~(1L << value);
+      words[value >>> 6] = after;
+      if (before != after) {
+        cardinality--;
+      }
+    }
+
+    void andWords(BitmapContainer other) {
+      int count = 0;
+      for (int w = 0; w < words.length; w++) {
+        words[w] &= other.words[w];
+        count += Long.bitCount(words[w]);
+      }
+      cardinality = count;
+    }
+
+    void orWords(BitmapContainer other) {
+      int count = 0;
+      for (int w = 0; w < words.length; w++) {
+        words[w] |= other.words[w];
+        count += Long.bitCount(words[w]);
+      }
+      cardinality = count;
+    }
+
+    void andNotWords(BitmapContainer other) {
+      int count = 0;
+      for (int w = 0; w < words.length; w++) {
+        words[w] &= ~other.words[w];
+        count += Long.bitCount(words[w]);
+      }
+      cardinality = count;
+    }
+
+    /**
+     * Выбирает самое компактное представление тех же значений.
+     */
+    Container optimize() {
+      int runs = countRuns();
+      int runBytes = 4 * runs;
+      int arrayBytes = 2 * cardinality;
+      if (runBytes < arrayBytes && runBytes < 8 * BITMAP_WORDS) {
+        return toRuns(runs);
+      }
+      if (cardinality <= ARRAY_MAX) {
+        return toArray();
+      }
+      return this;
+    }
+
+    private int countRuns() {
+      int runs = 0;
+      long previousTopBit = 0;
+      for (long word : words) {
+        // Начало отрезка — единичный бит, перед которым стоит нулевой.
+        long starts = word & ~((word << 1) | previousTopBit);
+        runs += Long.bitCount(starts);
+        previousTopBit = word >>> 63;
+      }
+      return runs;
+    }
+
+    private ArrayContainer toArray() {
+      char[] values = new char[Math.max(1, cardinality)];
+      int[] count = {0};
+      forEach(0, value -> values[count[0]++] = (char) value);
+      return new ArrayContainer(values, cardinality);
+    }
+
+    private RunContainer toRuns(int runs) {
+      char[] starts = new char[Math.max(1, runs)];
+      char[] lengths = new char[Math.max(1, runs)];
+      int count = 0;
+      int value = nextSet(0);
+      while (value >= 0) {
+        int end = nextClear(value);
+        starts[count] = (char) value;
+        lengths[count] = (char) (end - value - 1);
+        count++;
+        value = end < 65536 ? nextSet(end) : -1;
+      }
+      return new RunContainer(starts, lengths, count);
+    }
+
+    private int nextSet(int from) {
+      int w = from >>> 6;
+      if (w >= words.length) {
+        return -1;
+      }
+      long word = words[w] & (-1L << from);
+      while (word == 0) {
+        if (++w == words.length) {
+          return -1;
+        }
+        word = words[w];
+      }
+      return (w << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    private int nextClear(int from) {
+      int w = from >>> 6;
+      long word = ~words[w] & (-1L << from);
+      while (word == 0) {
+        if (++w == words.length) {
+          return 65536;
+        }
+        word = ~words[w];
+      }
+      return (w << 6) + Long.numberOfTrailingZeros(word);
+    }
+  }
+
+  /**
+   * Блок из отрезков подряд идущих значений: {@code [starts[i], starts[i] + lengths[i]]}.
+   */
+  private static final class RunContainer extends Container {
+
+    private char[] starts;
+
+    private char[] lengths;
+
+    private int runs;
+
+    private int cardinality;
+
+    RunContainer(char[] starts, char[] lengths, int runs) {
+      this.starts = starts;
+      this.lengths = lengths;
+      this.runs = runs;
+      for (int i = 0; i < runs; i++) {
+        cardinality += lengths[i] + 1;
+      }
+    }
+
+    @Override
+    int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    boolean contains(char value) {
+      int i = runBefore(value);
+      return i >= 0 && value <= starts[i] + lengths[i];
+    }
+
+    @Override
+    int ceiling(char value) {
+      int i = runBefore(value);
+      if (i >= 0 && value <= starts[i] + lengths[i]) {
+        return value;
+      }
+      return i + 1 < runs ? starts[i + 1] : -1;
+    }
+
+    @Override
+    Container add(char value) {
+      int i = runBefore(value);
+      boolean extendsPrevious = i >= 0 && starts[i] + lengths[i] + 1 == value;
+      boolean extendsNext = i + 1 < runs && starts[i + 1] == value + 1;
+      if (extendsPrevious && extendsNext) {
+        lengths[i] = (char) (lengths[i] + lengths[i + 1] + 2);
+        removeRun(i + 1);
+      } else if (extendsPrevious) {
+        lengths[i]++;
+      } else if (extendsNext) {
+        starts[i + 1] = value;
+        lengths[i + 1]++;
+      } else {
+        insertRun(i + 1, value, 0);
+      }
+      cardinality++;
+      return compact();
+    }
+
+    @Override
+    Container remove(char value) {
+      int i = runBefore(value);
+      int start = starts[i];
+      int end = start + lengths[i];
+      if (start == end) {
+        removeRun(i);
+      } else if (value == start) {
+        starts[i]++;
+        lengths[i]--;
+      } else if (value == end) {
+        lengths[i]--;
+      } else {
+        lengths[i] = (char) (value - start - 1);
+        insertRun(i + 1, value + 1, end - value - 1);
+      }
+      cardinality--;
+      return compact();
+    }
+
+    @Override
+    Container copy() {
+      return new RunContainer(starts.clone(), lengths.clone(), runs);
+    }
+
+    @Override
+    void forEach(int base, IntConsumer action) {
+      for (int i = 0; i < runs; i++) {
+        int end = starts[i] + lengths[i];
+        for (int value = starts[i]; value <= end; value++) {
+          action.accept(base | value);
+        }
+      }
+    }
+
+    @Override
+    BitmapContainer toBitmap() {
+      BitmapContainer bitmap = new BitmapContainer();
+      for (int i = 0; i < runs; i++) {
+        int end = starts[i] + lengths[i];
+        for (int value = starts[i]; value <= end; value++) {
+          bitmap.set((char) value);
+        }
+      }
+      return bitmap;
+    }
+
+    @Override
+    Container runOptimize() {
+      return compact();
+    }
+
+    @Override
+    Container and(Container other) {
+      if (other instanceof ArrayContainer) {
+        return other.and(this);
+      }
+      if (other instanceof BitmapContainer bitmap) {
+        if (cardinality <= ARRAY_MAX) {
+          return filter(bitmap, true);
+        }
+        BitmapContainer result = toBitmap();
+        result.andWords(bitmap);
+        return result.optimize();
+      }
+      RunContainer run = (RunContainer) other;
+      RunBuilder result = new RunBuilder(runs + run.runs);
+      int i = 0;
+      int j = 0;
+      while (i < runs && j < run.runs) {
+        int end = starts[i] + lengths[i];
+        int otherEnd = run.starts[j] + run.lengths[j];
+        int start = Math.max(starts[i], run.starts[j]);
+        if (start <= Math.min(end, otherEnd)) {
+          result.add(start, Math.min(end, otherEnd));
+        }
+        if (end < otherEnd) {
+          i++;
+        } else {
+          j++;
+        }
+      }
+      return result.build();
+    }
+
+    @Override
+    Container or(Container other) {
+      if (other instanceof BitmapContainer) {
+        return super.or(other);
+      }
+      Ranges ranges = new Ranges(other);
+      RunBuilder result = new RunBuilder(runs + ranges.count);
+      int i = 0;
+      int j = 0;
+      while (i < runs || j < ranges.count) {
+        if (j >= ranges.count || i < runs && starts[i] <= ranges.starts[j]) {
+          result.add(starts[i], starts[i] + lengths[i]);
+          i++;
+        } else {
+          result.add(ranges.starts[j], ranges.end(j));
+          j++;
+        }
+      }
+      return result.build();
+    }
+
+    @Override
+    Container andNot(Container other) {
+      if (other instanceof BitmapContainer bitmap) {
+        return cardinality <= ARRAY_MAX ? filter(bitmap, false) : super.andNot(other);
+      }
+      Ranges ranges = new Ranges(other);
+      RunBuilder result = new RunBuilder(runs + ranges.count);
+      int j = 0;
+      for (int i = 0; i < runs; i++) {
+        int start = starts[i];
+        int end = start + lengths[i];
+        while (j < ranges.count && ranges.end(j) < start) {
+          j++;
+        }
+        // Вычитаемые отрезки, задевающие текущий, режут его на части.
+        for (int k = j; k < ranges.count && ranges.starts[k] <= end; k++) {
+          if (ranges.starts[k] > start) {
+            result.add(start, ranges.starts[k] - 1);
+          }
+          start = Math.max(start, ranges.end(k) + 1);
+        }
+        if (start <= end) {
+          result.add(start, end);
+        }
+      }
+      return result.build();
+    }
+
+    /**
+     * Выбирает представление по тем же правилам, что {@link BitmapContainer#optimize()}, но без
+     * промежуточной битовой карты, если значений немного.
+     */
+    Container compact() {
+      int runBytes = 4 * runs;
+      if (runBytes < 2 * cardinality && runBytes < 8 * BITMAP_WORDS) {
+        return this;
+      }
+      if (cardinality > ARRAY_MAX) {
+        return toBitmap();
+      }
+      char[] values = new char[Math.max(1, cardinality)];
+      int count = 0;
+      for (int i = 0; i < runs; i++) {
+        int end = starts[i] + lengths[i];
+        for (int value = starts[i]; value <= end; value++) {
+          values[count++] = (char) value;
+        }
+      }
+      return new ArrayContainer(values, cardinality);
+    }
+
+    /** Значения блока, которые есть ({@code present}) или которых нет в битовой карте. */
+    private ArrayContainer filter(BitmapContainer bitmap, boolean present) {
+      char[] values = new char[Math.max(1, cardinality)];
+      int count = 0;
+      for (int i = 0; i < runs; i++) {
+        int end = starts[i] + lengths[i];
+        for (int value = starts[i]; value <= end; value++) {
+          if (bitmap.contains((char) value) == present) {
+            values[count++] = (char) value;
+          }
+        }
+      }
+      return new ArrayContainer(values, count);
+    }
+
+    /** Индекс последнего отрезка, начинающегося не позже {@code value}, или -1. */
+    private int runBefore(char value) {
+      int low = 0;
+      int high = runs - 1;
+      while (low <= high) {
+        int middle = (low + high) >>> 1;
+        if (starts[middle] <= value) {
+          low = middle + 1;
+        } else {
+          high = middle - 1;
+        }
+      }
+      return high;
+    }
+
+    private void insertRun(int index, int start, int length) {
+      if (runs == starts.length) {
+        starts = Arrays.copyOf(starts, runs * 2);
+        lengths = Arrays.copyOf(lengths, runs * 2);
+      }
+      System.arraycopy(starts, index, starts, index + 1, runs - index);
+      System.arraycopy(lengths, index, lengths, index + 1, runs - index);
+      starts[index] = (char) start;
+      lengths[index] = (char) length;
+      runs++;
+    }
+
+    private void removeRun(int index) {
+      System.arraycopy(starts, index + 1, starts, index, runs - index - 1);
+      System.arraycopy(lengths, index + 1, lengths, index, runs - index - 1);
+      runs--;
+    }
+  }
+
+  /**
+   * Отрезки массива или списка отрезков без копирования: у массива каждое значение — отрезок
+   * нулевой длины.
+   */
+  private static final class Ranges {
+
+    private final char[] starts;
+
+    /** Длины отрезков; {@code null} для массива. */
+    private final char[] lengths;
+
+    private final int count;
+
+    Ranges(Container container) {
+      if (container instanceof RunContainer run) {
+        starts = run.starts;
+        lengths = run.lengths;
+        count = run.runs;
+      } else {
+        ArrayContainer array = (ArrayContainer) container;
+        starts = array.values;
+        lengths = null;
+        count = array.cardinality;
+      }
+    }
+
+    int end(int index) {
+      return lengths == null ? starts[index] : starts[index] + lengths[index];
+    }
+  }
+
+  /**
+   * Собирает блок из отрезков, которые добавляются по возрастанию начала; пересекающиеся и
+   * соседние отрезки склеиваются.
+   */
+  private static final class RunBuilder {
+
+    private char[] starts;
+
+    private char[] lengths;
+
+    private int runs;
+
+    private int lastEnd;
+
+    RunBuilder(int capacity) {
+      starts = new char[Math.max(1, capacity)];
+      lengths = new char[Math.max(1, capacity)];
+    }
+
+    void add(int start, int end) {
+      if (runs > 0 && start <= lastEnd + 1) {
+        if (end > lastEnd) {
+          lastEnd = end;
+          lengths[runs - 1] = (char) (end - starts[runs - 1]);
+        }
+        return;
+      }
+      if (runs == starts.length) {
+        starts = Arrays.copyOf(starts, runs * 2);
+        lengths = Arrays.copyOf(lengths, runs * 2);
+      }
+      starts[runs] = (char) start;
+      lengths[runs] = (char) (end - start);
+      runs++;
+      lastEnd = end;
+    }
+
+    Container build() {
+      return new RunContainer(starts, lengths, runs).compact();
+    }
+  }
+}
@@ -0,0 +1,300 @@
+package ru.mentee.power.notes;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Хеш-таблица «int → заметка» с открытой адресацией.
+ *
+ * <p>Ключи лежат в массиве {@code int[]}, заметки — в параллельном массиве {@code Note[]}, поэтому
+ * нет ни упаковки идентификатора в {@link Integer}, ни отдельного объекта-узла на каждую запись,
+ * как в {@link java.util.HashMap}. Коллизии разрешаются линейным пробированием, а удаление
+ * сдвигает следующие записи назад, так что «надгробий» не остаётся и поиск не деградирует.
+ *
+ * <p>Ключ {@code 0} зарезервирован под пустую ячейку, поэтому идентификаторы должны быть
+ * положительными — как и те, что выдаёт {@link NoteService}. Класс не потокобезопасен.
+ */
+final class IntNoteMap implements NoteStore {
+
+  private static final int FREE = 0;
+
+  private static final int MIN_CAPACITY = 16;
+
+  private int[] keys;
+
+  private Note[] values;
+
+  private int size;
+
+  /**
+   * Создаёт пустую таблицу.
+   */
+  IntNoteMap() {
+    this(MIN_CAPACITY / 2);
+  }
+
+  /**
+   * Создаёт таблицу, вмещающую {@code expectedSize} записей без перестроения.
+   *
+   * @param expectedSize ожидаемое число записей
+   */
+  IntNoteMap(int expectedSize) {
+    int capacity = Math.max(MIN_CAPACITY, Integer.highestOneBit(expectedSize * 2 - 1) << 1);
+    keys = new int[capacity];
+    values = new Note[capacity];
+  }
+
+  @Override
+  public Note get(int id) {
+    int[] k = keys;
+    Note[] v = values;
+    if (k.length != v.length) {
+      // Возможно только при чтении без блокировки во время перестроения таблицы.
+      return null;
+    }
+    int mask = k.length - 1;
+    int slot = slot(id, mask);
+    for (int probes = 0; probes < k.length; probes++) {
+      int key = k[slot];
+      if (key == id) {
+        return v[slot];
+      }
+      if (key == FREE) {
+        return null;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return null;
+  }
+
+  @Override
+  public void put(Note note) {
+    int id = note.getId();
+    if (id <= 0) {
+      throw new IllegalArgumentException("Note id must be positive: " + id);
+    }
+    int mask = keys.length - 1;
+    int slot = slot(id, mask);
+    while (keys[slot] != FREE) {
+      if (keys[slot] == id) {
+        values[slot] = note;
+        return;
+      }
+      slot = (slot + 1) & mask;
+    }
+    keys[slot] = id;
+    values[slot] = note;
+    if (++size * 2 > keys.length) {
+      resize(keys.length * 2);
+    }
+  }
+
+  @Override
+  public void putAll(Collection<Note> notes) {
+    long expected = (long) size + notes.size();
+    if (expected * 2 > keys.length && expected <= Integer.MAX_VALUE / 4) {
+      resize(Integer.highestOneBit((int) expected * 2 - 1) << 1);
+    }
+    for (Note note : notes) {
+      put(note);
+    }
+  }
+
+  @Override
+  public Note remove(int id) {
+    if (id <= 0) {
+      // Такие ключи не хранятся, а 0 совпал бы с меткой свободной ячейки.
+      return null;
+    }
+    int mask = keys.length - 1;
+    int slot = slot(id, mask);
+    while (keys[slot] != id) {
+      if (keys[slot] == FREE) {
+        return null;
+      }
+      slot = (slot + 1) & mask;
+    }
+    Note removed = values[slot];
+    int gap = slot;
+    int next = slot;
+    while (true) {
+      next = (next + 1) & mask;
+      int key = keys[next];
+      if (key == FREE) {
+        break;
+      }
+      // Запись можно сдвинуть в «дыру», если та лежит между её домашней ячейкой и текущей.
+      int home = slot(key, mask);
+      if (((next - home) & mask) >= ((next - gap) & mask)) {
+        keys[gap] = key;
+        values[gap] = values[next];
+        gap = next;
+      }
+    }
+    keys[gap] = FREE;
+    values[gap] = null;
+    size--;
+    return removed;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public Iterator<Note> iterator() {
+    return new Iterator<>() {
+      private final Note[] table = values;
+
+      private int slot = advance(0);
+
+      @Override
+      public boolean hasNext() {
+        return slot < table.length;
+      }
+
+      @Override
+      public Note next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        Note note = table[slot];
+        slot = advance(slot + 1);
+        return note;
+      }
+
+      private int advance(int from) {
+        int i = from;
+        while (i < table.length && table[i] == null) {
+          i++;
+        }
+        return i;
+      }
+    };
+  }
+
+  /**
+   * Возвращает разделитель по ячейкам таблицы: деление пополам по диапазону ячеек, а благодаря
+   * хешированию заметки распределены по таблице равномерно, и половины получаются равными.
+   */
+  @Override
+  public Spliterator<Note> spliterator() {
+    return new TableSpliterator(this, 0, -1, 0);
+  }
+
+  private void resize(int capacity) {
+    int[] oldKeys = keys;
+    Note[] oldValues = values;
+    int[] newKeys = new int[capacity];
+    Note[] newValues = new Note[capacity];
+    int mask = capacity - 1;
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != FREE) {
+        int slot = slot(oldKeys[i], mask);
+        while (newKeys[slot] != FREE) {
+          slot = (slot + 1) & mask;
+        }
+        newKeys[slot] = oldKeys[i];
+        newValues[slot] = oldValues[i];
+      }
+    }
+    keys = newKeys;
+    values = newValues;
+  }
+
+  /**
+   * Фибоначчиево хеширование: последовательные идентификаторы равномерно расходятся по таблице.
+   */
+  private static int slot(int id, int mask) {
+    int hash = id * 0x9E3779B9;
+    return (hash ^ (hash >>> 16)) & mask;
+  }
+
+  /**
+   * Разделитель по диапазону ячеек {@code [index, fence)} массива заметок. Таблица читается при
+   * первом обращении ({@code fence < 0}), а не при создании разделителя.
+   */
+  private static final class TableSpliterator implements Spliterator<Note> {
+
+    private final IntNoteMap map;
+
+    private Note[] table;
+
+    private int index;
+
+    private int fence;
+
+    private long estimate;
+
+    TableSpliterator(IntNoteMap map, int index, int fence, long estimate) {
+      this.map = map;
+      this.index = index;
+      this.fence = fence;
+      this.estimate = estimate;
+    }
+
+    private int fence() {
+      if (fence < 0) {
+        table = map.values;
+        fence = table.length;
+        estimate = map.size;
+      }
+      return fence;
+    }
+
+    @Override
+    public Spliterator<Note> trySplit() {
+      int hi = fence();
+      int mid = (index + hi) >>> 1;
+      if (mid <= index) {
+        return null;
+      }
+      estimate >>>= 1;
+      TableSpliterator prefix = new TableSpliterator(map, index, mid, estimate);
+      prefix.table = table;
+      index = mid;
+      return prefix;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Note> action) {
+      int hi = fence();
+      while (index < hi) {
+        Note note = table[index++];
+        if (note != null) {
+          action.accept(note);
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super Note> action) {
+      int hi = fence();
+      Note[] t = table;
+      for (int i = index; i < hi; i++) {
+        Note note = t[i];
+        if (note != null) {
+          action.accept(note);
+        }
+      }
+      index = hi;
+    }
+
+    @Override
+    public long estimateSize() {
+      fence();
+      return estimate;
+    }
+
+    @Override
+    public int characteristics() {
+      return Spliterator.DISTINCT | Spliterator.NONNULL;
+    }
+  }
+}
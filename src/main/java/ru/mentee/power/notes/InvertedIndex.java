@@ -0,0 +1,257 @@
+package ru.mentee.power.notes;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntPredicate;
+
+/**
+ * Инвертированный индекс «ключ → идентификаторы заметок».
+ *
+ * <p>Используется для тегов, слов и триграмм текста. Список заметок каждого ключа хранится в
+ * сжатом множестве {@link IdBitmap}, поэтому даже ключи, которыми отмечены миллионы заметок,
+ * занимают мало памяти, а запросы И/ИЛИ/НЕ выполняются поблочными операциями над битовыми картами.
+ * Пустые списки удаляются из индекса, поэтому в нём хранятся только используемые ключи.
+ *
+ * <p>В конкурентном режиме словарь построен на {@link ConcurrentHashMap}. Каждый список
+ * изменяется и читается под собственным монитором, так что запрос ждёт только завершения
+ * единичного изменения того же списка, но не глобальной блокировки.
+ */
+final class InvertedIndex<K> {
+
+  private final Map<K, IdBitmap> postings;
+
+  /**
+   * Создаёт пустой индекс.
+   *
+   * @param concurrent нужна ли потокобезопасность
+   */
+  InvertedIndex(boolean concurrent) {
+    this.postings = concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
+  }
+
+  /**
+   * Добавляет заметку в список ключа.
+   *
+   * @param key ключ
+   * @param id  идентификатор заметки
+   */
+  void add(K key, int id) {
+    postings.compute(key, (k, ids) -> {
+      IdBitmap result = ids != null ? ids : new IdBitmap();
+      synchronized (result) {
+        result.add(id);
+      }
+      return result;
+    });
+  }
+
+  /**
+   * Добавляет в индекс списки заметок, собранные заранее: по одному обновлению на ключ вместо
+   * обновления на каждую пару «ключ, заметка».
+   *
+   * @param batch списки по ключам; переданные множества переходят во владение индекса
+   */
+  void addAll(Map<K, IdBitmap> batch) {
+    batch.forEach((key, batchIds) -> postings.compute(key, (k, ids) -> {
+      if (ids == null) {
+        return batchIds;
+      }
+      synchronized (ids) {
+        ids.addAll(batchIds);
+      }
+      return ids;
+    }));
+  }
+
+  /**
+   * Удаляет заметку из списка ключа; опустевший список удаляется целиком.
+   *
+   * @param key ключ
+   * @param id  идентификатор заметки
+   */
+  void remove(K key, int id) {
+    postings.computeIfPresent(key, (k, ids) -> {
+      synchronized (ids) {
+        ids.remove(id);
+        return ids.isEmpty() ? null : ids;
+      }
+    });
+  }
+
+  /**
+   * Возвращает все используемые ключи.
+   *
+   * @return живое представление множества ключей, у которых есть хотя бы одна заметка
+   */
+  Set<K> keys() {
+    return Collections.unmodifiableSet(postings.keySet());
+  }
+
+  /**
+   * Возвращает число заметок для каждого ключа.
+   *
+   * <p>Список ключа живёт ровно до тех пор, пока в нём есть заметки, поэтому его мощность и есть
+   * счётчик ссылок на ключ. Стоимость — O(число ключей), заметки не перебираются.
+   *
+   * @return новый словарь «ключ → число заметок»
+   */
+  Map<K, Integer> counts() {
+    Map<K, Integer> counts = new HashMap<>(postings.size() * 2);
+    postings.forEach((key, ids) -> {
+      synchronized (ids) {
+        counts.put(key, ids.cardinality());
+      }
+    });
+    return counts;
+  }
+
+  /**
+   * Находит заметки, которые есть в списках всех указанных ключей (И).
+   *
+   * <p>Списки пересекаются от самого короткого: первый шаг сразу сужает результат до размера
+   * самого редкого ключа, а дальше пересечение только уменьшается. Как только результат
+   * опустел, остальные списки не просматриваются.
+   *
+   * @param keys непустой набор ключей
+   * @return новое множество идентификаторов
+   */
+  IdBitmap findAll(Collection<K> keys) {
+    IdBitmap[] lists = rarestFirst(keys);
+    IdBitmap result = null;
+    for (int i = 0; i < lists.length && (result == null || !result.isEmpty()); i++) {
+      IdBitmap ids = lists[i];
+      synchronized (ids) {
+        result = result == null ? ids.copy() : IdBitmap.and(result, ids);
+      }
+    }
+    return result != null ? result : new IdBitmap();
+  }
+
+  /**
+   * Передаёт по возрастанию идентификаторы больше {@code afterId}, которые есть в списках всех
+   * ключей (И), пока {@code visitor} возвращает {@code true}.
+   *
+   * <p>В отличие от {@link #findAll} пересечение не строится целиком: списки обходятся вместе
+   * поиском {@link IdBitmap#ceiling}, кандидат берётся из самого редкого списка и проверяется в
+   * остальных, а при промахе все списки продвигаются сразу к большему идентификатору. Поэтому
+   * стоимость зависит от того, сколько результатов нужно, а не от длины списков.
+   *
+   * @param keys    непустой набор ключей
+   * @param afterId идентификаторы до него включительно пропускаются
+   * @param visitor получает идентификатор и возвращает {@code false}, чтобы остановить обход
+   */
+  void forEachAll(Collection<K> keys, int afterId, IntPredicate visitor) {
+    IdBitmap[] lists = rarestFirst(keys);
+    if (lists.length == 0 || afterId == Integer.MAX_VALUE) {
+      return;
+    }
+    int candidate = ceiling(lists[0], afterId + 1);
+    int i = 1;
+    while (candidate >= 0) {
+      if (i < lists.length) {
+        int found = ceiling(lists[i], candidate);
+        if (found == candidate) {
+          i++;
+          continue;
+        }
+        candidate = found < 0 ? -1 : ceiling(lists[0], found);
+      } else if (!visitor.test(candidate) || candidate == Integer.MAX_VALUE) {
+        return;
+      } else {
+        candidate = ceiling(lists[0], candidate + 1);
+      }
+      i = 1;
+    }
+  }
+
+  /**
+   * Находит заметки, которые есть в списке хотя бы одного из ключей (ИЛИ).
+   *
+   * @param keys набор ключей
+   * @return новое множество идентификаторов
+   */
+  IdBitmap findAny(Collection<K> keys) {
+    IdBitmap result = new IdBitmap();
+    for (K key : keys) {
+      IdBitmap ids = postings.get(key);
+      if (ids != null) {
+        synchronized (ids) {
+          result = IdBitmap.or(result, ids);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Убирает из множества заметки, которые есть в списке хотя бы одного из ключей (НЕ).
+   *
+   * @param ids  исходное множество; не изменяется
+   * @param keys исключаемые ключи
+   * @return новое множество идентификаторов
+   */
+  IdBitmap exclude(IdBitmap ids, Collection<K> keys) {
+    IdBitmap result = ids;
+    for (K key : keys) {
+      IdBitmap excluded = postings.get(key);
+      if (excluded != null && !result.isEmpty()) {
+        synchronized (excluded) {
+          result = IdBitmap.andNot(result, excluded);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Переводит списки в самое компактное представление.
+   */
+  void compact() {
+    postings.forEach((key, ids) -> {
+      synchronized (ids) {
+        ids.runOptimize();
+      }
+    });
+  }
+
+  /**
+   * Возвращает списки ключей от самого короткого; пустой массив, если какого-то ключа нет.
+   */
+  private IdBitmap[] rarestFirst(Collection<K> keys) {
+    IdBitmap[] lists = new IdBitmap[keys.size()];
+    long[] order = new long[lists.length];
+    int count = 0;
+    for (K key : keys) {
+      IdBitmap ids = postings.get(key);
+      if (ids == null) {
+        return new IdBitmap[0];
+      }
+      // Мощность снимается один раз, чтобы порядок не поменялся во время сортировки.
+      order[count] = (long) cardinality(ids) << 32 | count;
+      lists[count++] = ids;
+    }
+    Arrays.sort(order, 0, count);
+    IdBitmap[] sorted = new IdBitmap[count];
+    for (int i = 0; i < count; i++) {
+      sorted[i] = lists[(int) order[i]];
+    }
+    return sorted;
+  }
+
+  private static int ceiling(IdBitmap ids, int id) {
+    synchronized (ids) {
+      return ids.ceiling(id);
+    }
+  }
+
+  private static int cardinality(IdBitmap ids) {
+    synchronized (ids) {
+      return ids.cardinality();
+    }
+  }
+}
@@ -0,0 +1,131 @@
+package ru.mentee.power.notes;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Гистограмма длительностей в наносекундах с логарифмически-линейными корзинами, как в
+ * HdrHistogram.
+ *
+ * <p>Значения до {@code 2 * SUB_BUCKETS} хранятся точно, дальше каждая степень двойки делится на
+ * {@value #SUB_BUCKETS} равных корзин, поэтому относительная погрешность любого процентиля не
+ * больше {@code 1 / SUB_BUCKETS} (около 3%) во всём диапазоне {@code long}. Для задержек этого
+ * достаточно, а массив корзин вдвое короче, чем при 64 корзинах на степень.
+ *
+ * <p>Запись не блокируется и не выделяет память: атомарный инкремент счётчика корзины, сумма в
+ * {@link LongAdder} и обновление максимума только при новом рекорде. Счётчики корзин разбиты на
+ * полосы по {@link #STRIPES} копий массива, и поток пишет в полосу, выбранную по его
+ * идентификатору: быстрые операции разных потоков попадают в одну корзину, и общий счётчик
+ * превратился бы в точку соперничества. Полоса создаётся при первой записи в неё, а снимок
+ * складывает все полосы. Полоса занимает около 15 КБ, а гистограмма есть у каждой операции
+ * сервиса, поэтому полос не больше {@value #MAX_STRIPES}: этого хватает, чтобы развести
+ * соперничающие потоки, а память сервиса на все гистограммы остаётся в пределах пары мегабайт.
+ *
+ * <p>Снимок читает корзины без остановки записи, поэтому запись, идущая одновременно со снимком,
+ * может попасть в счётчик корзин, но ещё не в сумму (или наоборот).
+ */
+final class LatencyHistogram {
+
+  /** Корзин на одну степень двойки. */
+  static final int SUB_BUCKETS = 32;
+
+  private static final int SUB_BUCKET_BITS = Integer.numberOfTrailingZeros(SUB_BUCKETS);
+
+  /** Число корзин: точные значения до {@code 2 * SUB_BUCKETS} и по SUB_BUCKETS на степень. */
+  static final int BUCKETS = (Long.SIZE - 1 - SUB_BUCKET_BITS) * SUB_BUCKETS + SUB_BUCKETS;
+
+  /** Наибольшее число полос. */
+  static final int MAX_STRIPES = 8;
+
+  /** Число полос: степень двойки не меньше числа процессоров, но не больше {@link #MAX_STRIPES}. */
+  static final int STRIPES = Math.min(MAX_STRIPES,
+      Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)));
+
+  private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+
+  /** Счётчики корзин по полосам; {@code null}, пока в полосу никто не писал. */
+  private final AtomicReferenceArray<AtomicLongArray> stripes =
+      new AtomicReferenceArray<>(STRIPES);
+
+  private final LongAdder totalNanos = new LongAdder();
+
+  private final AtomicLong maxNanos = new AtomicLong();
+
+  /**
+   * Учитывает одно значение.
+   *
+   * @param nanos длительность в наносекундах; отрицательные считаются нулём
+   */
+  void record(long nanos) {
+    nanos = Math.max(0, nanos);
+    stripe().incrementAndGet(bucket(nanos));
+    totalNanos.add(nanos);
+    if (nanos > maxNanos.get()) {
+      maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+  }
+
+  /**
+   * Возвращает копию накопленной статистики.
+   *
+   * @return снимок гистограммы
+   */
+  LatencySnapshot snapshot() {
+    long[] copy = new long[BUCKETS];
+    for (int s = 0; s < STRIPES; s++) {
+      AtomicLongArray counts = stripes.get(s);
+      if (counts != null) {
+        for (int i = 0; i < BUCKETS; i++) {
+          copy[i] += counts.get(i);
+        }
+      }
+    }
+    return new LatencySnapshot(copy, totalNanos.sum(), maxNanos.get());
+  }
+
+  /**
+   * Возвращает полосу счётчиков текущего потока, создавая её при первой записи.
+   */
+  private AtomicLongArray stripe() {
+    // Идентификаторы потоков идут подряд; умножение перемешивает их по старшим битам.
+    int index = (int) (Thread.currentThread().threadId() * GOLDEN_RATIO >>> 32) & (STRIPES - 1);
+    AtomicLongArray counts = stripes.get(index);
+    if (counts == null) {
+      stripes.compareAndSet(index, null, new AtomicLongArray(BUCKETS));
+      counts = stripes.get(index);
+    }
+    return counts;
+  }
+
+  /**
+   * Возвращает номер корзины значения.
+   *
+   * @param value неотрицательное значение
+   * @return номер корзины
+   */
+  static int bucket(long value) {
+    if (value < 2 * SUB_BUCKETS) {
+      return (int) value;
+    }
+    int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    return shift * SUB_BUCKETS + (int) (value >>> shift);
+  }
+
+  /**
+   * Возвращает наибольшее значение, попадающее в корзину.
+   *
+   * @param bucket номер корзины
+   * @return верхняя граница корзины включительно
+   */
+  static long highestValue(int bucket) {
+    if (bucket < 2 * SUB_BUCKETS) {
+      return bucket;
+    }
+    int shift = bucket / SUB_BUCKETS - 1;
+    long subBucket = bucket % SUB_BUCKETS + SUB_BUCKETS;
+    // Для последней корзины сдвиг переполняется в Long.MIN_VALUE, и результат — Long.MAX_VALUE.
+    return (subBucket + 1 << shift) - 1;
+  }
+}
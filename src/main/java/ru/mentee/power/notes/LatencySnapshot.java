@@ -0,0 +1,124 @@
+package ru.mentee.power.notes;
+
+/**
+ * Неизменяемый снимок статистики длительностей одной операции.
+ *
+ * <p>Процентили считаются по корзинам гистограммы и возвращают верхнюю границу корзины, поэтому
+ * завышают точное значение не больше чем на 1/32 (около 3%), но никогда не превышают
+ * максимума.
+ */
+public final class LatencySnapshot {
+
+  private final long[] counts;
+
+  private final long count;
+
+  private final long totalNanos;
+
+  private final long maxNanos;
+
+  LatencySnapshot(long[] counts, long totalNanos, long maxNanos) {
+    this.counts = counts;
+    long sum = 0;
+    for (long bucketCount : counts) {
+      sum += bucketCount;
+    }
+    this.count = sum;
+    this.totalNanos = totalNanos;
+    this.maxNanos = maxNanos;
+  }
+
+  /**
+   * Возвращает число вызовов.
+   *
+   * @return число учтённых вызовов
+   */
+  public long count() {
+    return count;
+  }
+
+  /**
+   * Возвращает суммарную длительность всех вызовов.
+   *
+   * @return сумма в наносекундах
+   */
+  public long totalNanos() {
+    return totalNanos;
+  }
+
+  /**
+   * Возвращает наибольшую длительность.
+   *
+   * @return максимум в наносекундах; 0, если вызовов не было
+   */
+  public long maxNanos() {
+    return maxNanos;
+  }
+
+  /**
+   * Возвращает среднюю длительность.
+   *
+   * @return среднее в наносекундах; 0, если вызовов не было
+   */
+  public double meanNanos() {
+    return count == 0 ? 0 : (double) totalNanos / count;
+  }
+
+  /**
+   * Возвращает длительность, которую не превысила заданная доля вызовов.
+   *
+   * @param percentile процентиль от 0 до 100
+   * @return значение в наносекундах; 0, если вызовов не было
+   * @throws IllegalArgumentException если процентиль вне диапазона
+   */
+  public long valueAtPercentile(double percentile) {
+    if (!(percentile >= 0 && percentile <= 100)) {
+      throw new IllegalArgumentException("Percentile must be within [0, 100]: " + percentile);
+    }
+    if (count == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return Math.min(LatencyHistogram.highestValue(i), maxNanos);
+      }
+    }
+    return maxNanos;
+  }
+
+  /**
+   * Возвращает медиану.
+   *
+   * @return 50-й процентиль в наносекундах
+   */
+  public long p50() {
+    return valueAtPercentile(50);
+  }
+
+  /**
+   * Возвращает 99-й процентиль.
+   *
+   * @return 99-й процентиль в наносекундах
+   */
+  public long p99() {
+    return valueAtPercentile(99);
+  }
+
+  /**
+   * Возвращает 99.9-й процентиль.
+   *
+   * @return 99.9-й процентиль в наносекундах
+   */
+  public long p999() {
+    return valueAtPercentile(99.9);
+  }
+
+  @Override
+  public String toString() {
+    return "count=" + count + " mean=" + Math.round(meanNanos()) + "ns p50=" + p50() + "ns p99="
+        + p99() + "ns p999=" + p999() + "ns max=" + maxNanos + "ns";
+  }
+}
@@ -0,0 +1,123 @@
+package ru.mentee.power.notes;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Потокобезопасная обёртка над непотокобезопасным хранилищем.
+ *
+ * <p>Запись идёт под эксклюзивной блокировкой {@link StampedLock}. Чтение по идентификатору
+ * сначала выполняется оптимистично, без блокировки, и повторяется под блокировкой чтения только
+ * если за это время успела пройти запись. Обход работает по снимку, снятому под блокировкой
+ * чтения.
+ */
+final class LockingNoteStore implements NoteStore {
+
+  private final NoteStore delegate;
+
+  private final StampedLock lock = new StampedLock();
+
+  /**
+   * Оборачивает хранилище.
+   *
+   * @param delegate хранилище, к которому больше никто не обращается напрямую
+   */
+  LockingNoteStore(NoteStore delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public Note get(int id) {
+    long stamp = lock.tryOptimisticRead();
+    if (stamp != 0) {
+      Note note = null;
+      try {
+        note = delegate.get(id);
+      } catch (RuntimeException e) {
+        // Несогласованное состояние посреди записи: validate ниже не пройдёт.
+      }
+      if (lock.validate(stamp)) {
+        return note;
+      }
+    }
+    stamp = lock.readLock();
+    try {
+      return delegate.get(id);
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  @Override
+  public void put(Note note) {
+    long stamp = lock.writeLock();
+    try {
+      delegate.put(note);
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  @Override
+  public void putAll(Collection<Note> notes) {
+    long stamp = lock.writeLock();
+    try {
+      delegate.putAll(notes);
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  @Override
+  public Note remove(int id) {
+    long stamp = lock.writeLock();
+    try {
+      return delegate.remove(id);
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  @Override
+  public int size() {
+    long stamp = lock.readLock();
+    try {
+      return delegate.size();
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  @Override
+  public Iterator<Note> iterator() {
+    return snapshot().iterator();
+  }
+
+  /**
+   * Возвращает разделитель по снимку, как и {@link #iterator()}: удаление в
+   * {@link IntNoteMap} сдвигает записи таблицы, и обход без блокировки мог бы пропустить
+   * заметку, которая всё время была на месте. Снимок — только массив ссылок, и делится он
+   * точно пополам.
+   */
+  @Override
+  public Spliterator<Note> spliterator() {
+    return snapshot().spliterator();
+  }
+
+  private List<Note> snapshot() {
+    long stamp = lock.readLock();
+    try {
+      List<Note> snapshot = new ArrayList<>(delegate.size());
+      for (Note note : delegate) {
+        snapshot.add(note);
+      }
+      return snapshot;
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+}
@@ -0,0 +1,55 @@
+package ru.mentee.power.notes;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Spliterator;
+
+/**
+ * Хранилище заметок поверх стандартного {@link Map}.
+ *
+ * <p>С {@link java.util.HashMap} используется в однопоточном режиме, с
+ * {@link java.util.concurrent.ConcurrentHashMap} — в конкурентном.
+ */
+final class MapNoteStore implements NoteStore {
+
+  private final Map<Integer, Note> notes;
+
+  /**
+   * Создаёт хранилище поверх переданного пустого словаря.
+   *
+   * @param notes словарь, в котором будут храниться заметки
+   */
+  MapNoteStore(Map<Integer, Note> notes) {
+    this.notes = notes;
+  }
+
+  @Override
+  public Note get(int id) {
+    return notes.get(id);
+  }
+
+  @Override
+  public void put(Note note) {
+    notes.put(note.getId(), note);
+  }
+
+  @Override
+  public Note remove(int id) {
+    return notes.remove(id);
+  }
+
+  @Override
+  public int size() {
+    return notes.size();
+  }
+
+  @Override
+  public Iterator<Note> iterator() {
+    return notes.values().iterator();
+  }
+
+  @Override
+  public Spliterator<Note> spliterator() {
+    return notes.values().spliterator();
+  }
+}
@@ -1,33 +1,65 @@
 package ru.mentee.power.notes;
 
 import java.time.LocalDate;
-import java.util.Collections;
-import java.util.HashSet;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Set;
 
 /**
  * Модель заметки с заголовком, текстом, датой создания и тегами.
  *
- * <p>Теги хранятся в виде множества в нижнем регистре. Дата создания фиксируется при
- * инициализации объекта.
+ * <p>Теги приводятся к нижнему регистру и хранятся как отсортированный массив кодов из общего
+ * словаря {@link TagDictionary}: одинаковые теги разных заметок не дублируются, а проверка и
+ * пересечение тегов идут по числам. {@link #getTags()} отдаёт привычный {@link Set} строк как
+ * представление над этим массивом. Дата создания фиксируется при инициализации объекта.
+ *
+ * <p>Изменяемые поля объявлены {@code volatile}, а массив кодов тегов — неизменяемый снимок,
+ * который заменяется целиком при каждом изменении. Поэтому чтение заметки никогда не блокируется,
+ * а изменения сериализуются монитором самой заметки. Если наблюдатель отклонил изменение
+ * исключением (например, запись в журнал не удалась), прежнее значение восстанавливается и
+ * исключение передаётся вызывающему.
+ *
+ * <p>Для поиска без учёта регистра заметка хранит текст в нижнем регистре ({@link #foldedText()}):
+ * он вычисляется при первом обращении и пересчитывается после изменения текста, так что поиск не
+ * строит копию текста каждой заметки на каждый запрос.
+ *
+ * <p>Заметка хранится компактно: кроме самого объекта ей принадлежат строки заголовка и текста,
+ * массив кодов тегов и кеш текста в нижнем регистре. Сервис заполняет кеш при индексации, так что
+ * он есть у каждой сохранённой заметки; если текст уже в нижнем регистре, кеш ссылается на ту же
+ * строку и добавляет только свою обёртку. Дата создания хранится днём эпохи в поле {@code int},
+ * а {@link LocalDate} создаётся лишь при вызове {@link #getCreationDate()}.
  */
 public class Note {
 
   /** Уникальный идентификатор заметки. */
   private final int id;
 
-  /** Дата создания заметки. */
-  private final LocalDate creationDate;
+  /** Дата создания заметки: число дней от 1970-01-01 ({@link LocalDate#toEpochDay()}). */
+  private final int creationDay;
 
   /** Заголовок заметки. */
-  private String title;
+  private volatile String title;
 
   /** Текст заметки. */
-  private String text;
+  private volatile String text;
+
+  /**
+   * Текст в нижнем регистре вместе с текстом, из которого он получен; {@code null}, пока не
+   * вычислен.
+   */
+  private volatile FoldedText folded;
+
+  /** Пустой набор кодов тегов. */
+  private static final int[] NO_TAGS = new int[0];
+
+  /** Отсортированные коды тегов из {@link TagDictionary#GLOBAL}; массив не изменяется. */
+  private volatile int[] tagCodes;
 
-  /** Набор тегов (уникальные строки, всегда в нижнем регистре). */
-  private Set<String> tags;
+  /** Наблюдатель за изменениями (например, индексы сервиса), может отсутствовать. */
+  private volatile NoteListener listener;
 
   /**
    * Создаёт новую заметку.
@@ -40,6 +72,33 @@ public class Note {
    * @throws IllegalArgumentException если {@code title} равен {@code null}
    */
   public Note(int id, String title, String text) {
+    this(id, title, text, (int) LocalDate.now().toEpochDay());
+  }
+
+  /**
+   * Восстанавливает заметку с известной датой создания (например, при чтении журнала).
+   *
+   * @param id           уникальный идентификатор заметки
+   * @param title        заголовок заметки (не {@code null})
+   * @param text         текст заметки (может быть {@code null})
+   * @param creationDate дата создания
+   * @throws IllegalArgumentException если {@code title} равен {@code null}
+   * @throws ArithmeticException      если день эпохи даты не помещается в {@code int}
+   */
+  Note(int id, String title, String text, LocalDate creationDate) {
+    this(id, title, text, Math.toIntExact(creationDate.toEpochDay()));
+  }
+
+  /**
+   * Восстанавливает заметку с датой создания, заданной днём эпохи.
+   *
+   * @param id          уникальный идентификатор заметки
+   * @param title       заголовок заметки (не {@code null})
+   * @param text        текст заметки (может быть {@code null})
+   * @param creationDay дата создания как число дней от 1970-01-01
+   * @throws IllegalArgumentException если {@code title} равен {@code null}
+   */
+  Note(int id, String title, String text, int creationDay) {
     if (title == null) {
       throw new IllegalArgumentException("Title cannot be null");
     }
@@ -49,8 +108,8 @@ public class Note {
     this.id = id;
     this.title = title;
     this.text = text;
-    this.creationDate = LocalDate.now();
-    this.tags = new HashSet<>();
+    this.creationDay = creationDay;
+    this.tagCodes = NO_TAGS;
   }
 
   /**
@@ -77,11 +136,21 @@ public class Note {
    * @param title заголовок (не {@code null})
    * @throws IllegalArgumentException если {@code title} равен {@code null}
    */
-  public void setTitle(String title) {
+  public synchronized void setTitle(String title) {
     if (title == null) {
       throw new IllegalArgumentException("Title cannot be null");
     }
+    String oldTitle = this.title;
     this.title = title;
+    NoteListener current = listener;
+    if (current != null && !oldTitle.equals(title)) {
+      try {
+        current.titleChanged(this, oldTitle);
+      } catch (RuntimeException e) {
+        this.title = oldTitle;
+        throw e;
+      }
+    }
   }
 
   /**
@@ -93,6 +162,26 @@ public class Note {
     return text;
   }
 
+  /**
+   * Возвращает текст заметки в нижнем регистре (см. {@link TextTokenizer#fold(String)}).
+   *
+   * <p>Значение кешируется вместе с исходным текстом и считается действительным, только пока
+   * исходный текст — тот же объект, что и текущий. Поэтому кеш не нужно сбрасывать в
+   * {@link #setText(String)}, и устаревшее значение, которое другой поток вычислил по старому
+   * тексту и записал после изменения, никогда не будет возвращено.
+   *
+   * @return текст в нижнем регистре
+   */
+  String foldedText() {
+    String current = text;
+    FoldedText cached = folded;
+    if (cached == null || cached.source != current) {
+      cached = new FoldedText(current, TextTokenizer.fold(current));
+      folded = cached;
+    }
+    return cached.folded;
+  }
+
   /**
    * Устанавливает новый текст заметки.
    *
@@ -100,11 +189,55 @@ public class Note {
    *
    * @param text текст (может быть {@code null})
    */
-  public void setText(String text) {
+  public synchronized void setText(String text) {
+    if (text == null) {
+      text = "";
+    }
+    String oldText = this.text;
+    this.text = text;
+    NoteListener current = listener;
+    if (current != null && !oldText.equals(text)) {
+      try {
+        current.textChanged(this, oldText);
+      } catch (RuntimeException e) {
+        this.text = oldText;
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Устанавливает заголовок и текст заметки одним изменением: наблюдатель получает одно событие
+   * {@link NoteListener#contentChanged}, и если он бросает исключение, заметка возвращает оба
+   * прежних значения.
+   *
+   * <p>Если передан текст {@code null}, будет сохранена пустая строка.
+   *
+   * @param title заголовок (не {@code null})
+   * @param text  текст (может быть {@code null})
+   * @throws IllegalArgumentException если {@code title} равен {@code null}
+   */
+  synchronized void update(String title, String text) {
+    if (title == null) {
+      throw new IllegalArgumentException("Title cannot be null");
+    }
     if (text == null) {
       text = "";
     }
+    String oldTitle = this.title;
+    String oldText = this.text;
+    this.title = title;
     this.text = text;
+    NoteListener current = listener;
+    if (current != null && (!oldTitle.equals(title) || !oldText.equals(text))) {
+      try {
+        current.contentChanged(this, oldTitle, oldText);
+      } catch (RuntimeException e) {
+        this.title = oldTitle;
+        this.text = oldText;
+        throw e;
+      }
+    }
   }
 
   /**
@@ -113,16 +246,27 @@ public class Note {
    * @return дата создания заметки
    */
   public LocalDate getCreationDate() {
-    return creationDate;
+    return LocalDate.ofEpochDay(creationDay);
+  }
+
+  /**
+   * Возвращает дату создания как день эпохи, не создавая {@link LocalDate}.
+   *
+   * @return число дней от 1970-01-01
+   */
+  int creationDay() {
+    return creationDay;
   }
 
   /**
    * Возвращает неизменяемый набор тегов.
    *
+   * <p>Набор — снимок на момент вызова: последующие изменения тегов заметки в нём не видны.
+   *
    * @return неизменяемый набор тегов
    */
   public Set<String> getTags() {
-    return Collections.unmodifiableSet(tags);
+    return new TagSet(tagCodes);
   }
 
   /**
@@ -134,10 +278,7 @@ public class Note {
    * @throws IllegalArgumentException если тег равен {@code null} или пустой
    */
   public void addTag(String tag) {
-    if (tag == null || tag.isEmpty()) {
-      throw new IllegalArgumentException("Tag cannot be null or empty");
-    }
-    tags.add(tag.toLowerCase());
+    addTagCode(internTag(tag));
   }
 
   /**
@@ -147,7 +288,108 @@ public class Note {
    * @return {@code true}, если тег существовал и удалён; {@code false} — если такого тега не было
    */
   public boolean removeTag(String tag) {
-    return tags.remove(tag.toLowerCase());
+    int code = TagDictionary.GLOBAL.lookup(TagDictionary.normalize(tag));
+    return code != TagDictionary.ABSENT && removeTagCode(code);
+  }
+
+  /**
+   * Проверяет тег и возвращает его код в общем словаре, приведя тег к нижнему регистру.
+   *
+   * @param tag тег (не {@code null} и не пустой)
+   * @return код тега в {@link TagDictionary#GLOBAL}
+   * @throws IllegalArgumentException если тег равен {@code null} или пустой
+   */
+  static int internTag(String tag) {
+    if (tag == null || tag.isEmpty()) {
+      throw new IllegalArgumentException("Tag cannot be null or empty");
+    }
+    return TagDictionary.GLOBAL.intern(TagDictionary.normalize(tag));
+  }
+
+  /**
+   * Возвращает отсортированные коды тегов.
+   *
+   * @return снимок кодов; массив нельзя изменять
+   */
+  int[] tagCodes() {
+    return tagCodes;
+  }
+
+  /**
+   * Проверяет наличие тега по коду.
+   *
+   * @param code код тега
+   * @return {@code true}, если тег есть у заметки
+   */
+  boolean hasTagCode(int code) {
+    return Arrays.binarySearch(tagCodes, code) >= 0;
+  }
+
+  /**
+   * Добавляет тег по коду.
+   *
+   * @param code код тега из {@link TagDictionary#GLOBAL}
+   * @return {@code true}, если тега не было и он добавлен
+   */
+  synchronized boolean addTagCode(int code) {
+    int[] current = tagCodes;
+    int position = Arrays.binarySearch(current, code);
+    if (position >= 0) {
+      return false;
+    }
+    int insertAt = -position - 1;
+    int[] updated = new int[current.length + 1];
+    System.arraycopy(current, 0, updated, 0, insertAt);
+    updated[insertAt] = code;
+    System.arraycopy(current, insertAt, updated, insertAt + 1, current.length - insertAt);
+    tagCodes = updated;
+    NoteListener observer = listener;
+    if (observer != null) {
+      try {
+        observer.tagAdded(this, code);
+      } catch (RuntimeException e) {
+        tagCodes = current;
+        throw e;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Удаляет тег по коду.
+   *
+   * @param code код тега
+   * @return {@code true}, если тег был и удалён
+   */
+  synchronized boolean removeTagCode(int code) {
+    int[] current = tagCodes;
+    int position = Arrays.binarySearch(current, code);
+    if (position < 0) {
+      return false;
+    }
+    int[] updated = new int[current.length - 1];
+    System.arraycopy(current, 0, updated, 0, position);
+    System.arraycopy(current, position + 1, updated, position, updated.length - position);
+    tagCodes = updated;
+    NoteListener observer = listener;
+    if (observer != null) {
+      try {
+        observer.tagRemoved(this, code);
+      } catch (RuntimeException e) {
+        tagCodes = current;
+        throw e;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Подключает или отключает наблюдателя за изменениями заметки.
+   *
+   * @param listener наблюдатель или {@code null}, чтобы отключить текущего
+   */
+  synchronized void setListener(NoteListener listener) {
+    this.listener = listener;
   }
 
   /**
@@ -186,9 +428,61 @@ public class Note {
   @Override
   public String toString() {
     return "\nNote{"
-        + "\n   creationDate=" + creationDate
+        + "\n   creationDate=" + getCreationDate()
         + "\n   title='" + title + '\''
         + "\n   text='" + text + '\''
         + "\n}";
   }
+
+  /**
+   * Неизменяемое представление снимка кодов тегов в виде множества строк.
+   */
+  private static final class TagSet extends AbstractSet<String> {
+
+    private final int[] codes;
+
+    TagSet(int[] codes) {
+      this.codes = codes;
+    }
+
+    @Override
+    public int size() {
+      return codes.length;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      if (!(o instanceof String tag)) {
+        return false;
+      }
+      int code = TagDictionary.GLOBAL.lookup(tag);
+      return code != TagDictionary.ABSENT && Arrays.binarySearch(codes, code) >= 0;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+      return new Iterator<>() {
+        private int position;
+
+        @Override
+        public boolean hasNext() {
+          return position < codes.length;
+        }
+
+        @Override
+        public String next() {
+          if (position >= codes.length) {
+            throw new NoSuchElementException();
+          }
+          return TagDictionary.GLOBAL.tag(codes[position++]);
+        }
+      };
+    }
+  }
+
+  /**
+   * Текст в нижнем регистре и текст, из которого он получен.
+   */
+  private record FoldedText(String source, String folded) {
+  }
 }
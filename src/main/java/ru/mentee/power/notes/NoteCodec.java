@@ -0,0 +1,371 @@
+package ru.mentee.power.notes;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Двоичный формат заметки, общий для журнала и снимков.
+ *
+ * <p>Формат заметки:
+ * <pre>
+ *   varint id | zigzag-varint день эпохи даты создания | строка заголовка | строка текста
+ *   | varint число тегов | varint код тега ...
+ * </pre>
+ * Строка — это varint длина в байтах и UTF-8. Теги записываются кодами из {@link TagTable} —
+ * словаря, который ведёт владелец файла и сохраняет в том же файле.
+ *
+ * <p>Собственной версии у формата заметки нет, поэтому закодированная заметка имеет смысл только
+ * внутри версионированного контейнера — журнала {@link NoteLog} или снимка {@link NoteSnapshot},
+ * которые проверяют свою версию в заголовке файла. Несовместимое изменение формата заметки
+ * требует увеличить версии обоих файлов. Для передачи заметок в другие процессы формат не
+ * предназначен.
+ *
+ * <p>Кодирование не создаёт промежуточных объектов: размер считается заранее
+ * ({@link #encodedSize}), строки пишутся в буфер посимвольно. Декодер переиспользует один рабочий
+ * массив для строк из буферов без доступного массива (например, отображённых в память), поэтому
+ * экземпляр декодера не потокобезопасен; статические методы безопасны.
+ */
+final class NoteCodec {
+
+  /** Рабочий массив для чтения строк из буферов без массива. */
+  private byte[] scratch = new byte[256];
+
+  /**
+   * Возвращает размер заметки в формате кодека.
+   *
+   * <p>Вызывающий должен удерживать монитор заметки до {@link #encode}, чтобы размер и
+   * содержимое совпали.
+   *
+   * @param note заметка
+   * @param tags словарь тегов файла, в котором уже есть все теги заметки
+   * @return размер в байтах
+   */
+  static int encodedSize(Note note, TagTable tags) {
+    int size = varintSize(note.getId()) + varlongSize(zigzag(note.creationDay()))
+        + stringSize(note.getTitle()) + stringSize(note.getText());
+    int[] tagCodes = note.tagCodes();
+    size += varintSize(tagCodes.length);
+    for (int tagCode : tagCodes) {
+      size += varintSize(tags.local(tagCode));
+    }
+    return size;
+  }
+
+  /**
+   * Записывает заметку в буфер.
+   *
+   * @param buffer буфер, в котором есть {@link #encodedSize} свободных байт
+   * @param note   заметка
+   * @param tags   словарь тегов файла, в котором уже есть все теги заметки
+   */
+  static void encode(ByteBuffer buffer, Note note, TagTable tags) {
+    putVarint(buffer, note.getId());
+    putVarlong(buffer, zigzag(note.creationDay()));
+    putString(buffer, note.getTitle());
+    putString(buffer, note.getText());
+    int[] tagCodes = note.tagCodes();
+    putVarint(buffer, tagCodes.length);
+    for (int tagCode : tagCodes) {
+      putVarint(buffer, tags.local(tagCode));
+    }
+  }
+
+  /**
+   * Читает заметку из буфера.
+   *
+   * @param buffer буфер, позиция которого стоит на начале заметки
+   * @param tags   словарь тегов файла
+   * @return новая заметка без наблюдателя
+   * @throws IllegalArgumentException если данные не соответствуют формату
+   */
+  Note decode(ByteBuffer buffer, TagTable tags) {
+    int id = getVarint(buffer);
+    long creationDay = unzigzag(getVarlong(buffer));
+    if (creationDay != (int) creationDay) {
+      throw new IllegalArgumentException("Creation date out of range: " + creationDay);
+    }
+    String title = getString(buffer);
+    String text = getString(buffer);
+    Note note = new Note(id, title, text, (int) creationDay);
+    int tagCount = getVarint(buffer);
+    for (int i = 0; i < tagCount; i++) {
+      note.addTagCode(tags.global(getVarint(buffer)));
+    }
+    return note;
+  }
+
+  /**
+   * Читает строку, записанную {@link #putString}.
+   *
+   * @param buffer буфер
+   * @return строка
+   */
+  String getString(ByteBuffer buffer) {
+    int length = getVarint(buffer);
+    if (length > buffer.remaining()) {
+      throw new IllegalArgumentException("String of " + length + " bytes overruns the buffer");
+    }
+    String value;
+    if (buffer.hasArray()) {
+      value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+          StandardCharsets.UTF_8);
+      buffer.position(buffer.position() + length);
+    } else {
+      if (scratch.length < length) {
+        scratch = new byte[Math.max(length, scratch.length * 2)];
+      }
+      buffer.get(scratch, 0, length);
+      value = new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+    return value;
+  }
+
+  /**
+   * Возвращает размер строки вместе с префиксом длины.
+   *
+   * @param value строка
+   * @return размер в байтах
+   */
+  static int stringSize(String value) {
+    int length = utf8Length(value);
+    return varintSize(length) + length;
+  }
+
+  /**
+   * Записывает строку как varint длину в байтах и UTF-8, без промежуточного массива.
+   * Одиночные суррогаты заменяются на {@code '?'}, как в {@link String#getBytes}.
+   *
+   * @param buffer буфер
+   * @param value  строка
+   */
+  static void putString(ByteBuffer buffer, String value) {
+    putVarint(buffer, utf8Length(value));
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c < 0x80) {
+        buffer.put((byte) c);
+      } else if (c < 0x800) {
+        buffer.put((byte) (0xC0 | c >> 6)).put((byte) (0x80 | c & 0x3F));
+      } else if (Character.isSurrogate(c)) {
+        int codePoint = value.codePointAt(i);
+        if (Character.isSupplementaryCodePoint(codePoint)) {
+          buffer.put((byte) (0xF0 | codePoint >> 18))
+              .put((byte) (0x80 | codePoint >> 12 & 0x3F))
+              .put((byte) (0x80 | codePoint >> 6 & 0x3F))
+              .put((byte) (0x80 | codePoint & 0x3F));
+          i++;
+        } else {
+          buffer.put((byte) '?');
+        }
+      } else {
+        buffer.put((byte) (0xE0 | c >> 12))
+            .put((byte) (0x80 | c >> 6 & 0x3F))
+            .put((byte) (0x80 | c & 0x3F));
+      }
+    }
+  }
+
+  private static int utf8Length(String value) {
+    int length = value.length();
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c >= 0x80) {
+        if (c < 0x800) {
+          length++;
+        } else if (Character.isSurrogate(c)) {
+          if (Character.isSupplementaryCodePoint(value.codePointAt(i))) {
+            // Пара суррогатов (2 char) — 4 байта.
+            length += 2;
+            i++;
+          }
+        } else {
+          length += 2;
+        }
+      }
+    }
+    return length;
+  }
+
+  /**
+   * Возвращает размер неотрицательного числа в формате varint.
+   *
+   * @param value число
+   * @return от 1 до 5 байт
+   */
+  static int varintSize(int value) {
+    return value >>> 7 == 0 ? 1 : value >>> 14 == 0 ? 2 : value >>> 21 == 0 ? 3
+        : value >>> 28 == 0 ? 4 : 5;
+  }
+
+  /**
+   * Записывает число как varint: по 7 бит в байте, старший бит — «дальше есть байты».
+   *
+   * @param buffer буфер
+   * @param value  число (рассматривается как беззнаковое)
+   */
+  static void putVarint(ByteBuffer buffer, int value) {
+    while (value >>> 7 != 0) {
+      buffer.put((byte) (value & 0x7F | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+
+  /**
+   * Читает число, записанное {@link #putVarint}.
+   *
+   * @param buffer буфер
+   * @return число
+   * @throws IllegalArgumentException если varint длиннее 5 байт
+   */
+  static int getVarint(ByteBuffer buffer) {
+    int value = 0;
+    for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+      byte b = buffer.get();
+      value |= (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+    throw new IllegalArgumentException("Malformed varint");
+  }
+
+  private static int varlongSize(long value) {
+    int size = 1;
+    while (value >>> 7 != 0) {
+      value >>>= 7;
+      size++;
+    }
+    return size;
+  }
+
+  private static void putVarlong(ByteBuffer buffer, long value) {
+    while (value >>> 7 != 0) {
+      buffer.put((byte) (value & 0x7F | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+
+  private static long getVarlong(ByteBuffer buffer) {
+    long value = 0;
+    for (int shift = 0; shift < Long.SIZE; shift += 7) {
+      byte b = buffer.get();
+      value |= (long) (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+    throw new IllegalArgumentException("Malformed varlong");
+  }
+
+  /** Переводит знаковое число в беззнаковое так, чтобы малые по модулю были короткими. */
+  private static long zigzag(long value) {
+    return value << 1 ^ value >> 63;
+  }
+
+  private static long unzigzag(long value) {
+    return value >>> 1 ^ -(value & 1);
+  }
+
+  /**
+   * Словарь тегов одного файла: соответствие кодов {@link TagDictionary#GLOBAL} (действуют
+   * только внутри процесса) и локальных кодов файла (записываются в данные).
+   *
+   * <p>Локальные коды выдаются подряд с нуля, поэтому малы и занимают в varint один-два байта.
+   * Не потокобезопасен: владелец файла использует его под своей блокировкой.
+   */
+  static final class TagTable {
+
+    /** Локальный код + 1 по глобальному коду; 0 — тега в словаре нет. */
+    private int[] localByGlobal = new int[64];
+
+    private int[] globalByLocal = new int[64];
+
+    private int size;
+
+    /**
+     * Возвращает число локальных кодов.
+     *
+     * @return размер словаря
+     */
+    int size() {
+      return size;
+    }
+
+    /**
+     * Возвращает локальный код тега.
+     *
+     * @param globalCode код тега в {@link TagDictionary#GLOBAL}
+     * @return локальный код или {@code -1}, если тега в словаре нет
+     */
+    int local(int globalCode) {
+      return globalCode < localByGlobal.length ? localByGlobal[globalCode] - 1 : -1;
+    }
+
+    /**
+     * Возвращает глобальный код по локальному.
+     *
+     * @param localCode локальный код
+     * @return код тега в {@link TagDictionary#GLOBAL}
+     * @throws IllegalArgumentException если такого локального кода нет
+     */
+    int global(int localCode) {
+      if (localCode < 0 || localCode >= size || globalByLocal[localCode] < 0) {
+        throw new IllegalArgumentException("Unknown tag code " + localCode);
+      }
+      return globalByLocal[localCode];
+    }
+
+    /**
+     * Добавляет тег под следующим свободным локальным кодом.
+     *
+     * @param globalCode код тега в {@link TagDictionary#GLOBAL}
+     * @return выданный локальный код
+     */
+    int add(int globalCode) {
+      int localCode = size;
+      put(localCode, globalCode);
+      return localCode;
+    }
+
+    /**
+     * Связывает локальный код с тегом (при чтении словаря из файла). Повторный вызов с теми же
+     * аргументами ничего не меняет.
+     *
+     * @param localCode  локальный код
+     * @param globalCode код тега в {@link TagDictionary#GLOBAL}
+     */
+    void put(int localCode, int globalCode) {
+      if (localCode >= globalByLocal.length) {
+        globalByLocal = Arrays.copyOf(globalByLocal, Math.max(localCode + 1,
+            globalByLocal.length * 2));
+      }
+      // Пропущенные коды (определения придут позже) помечаются как отсутствующие.
+      for (int i = size; i < localCode; i++) {
+        globalByLocal[i] = -1;
+      }
+      if (globalCode >= localByGlobal.length) {
+        localByGlobal = Arrays.copyOf(localByGlobal, Math.max(globalCode + 1,
+            localByGlobal.length * 2));
+      }
+      globalByLocal[localCode] = globalCode;
+      localByGlobal[globalCode] = localCode + 1;
+      size = Math.max(size, localCode + 1);
+    }
+
+    /**
+     * Возвращает независимую копию словаря.
+     *
+     * @return копия
+     */
+    TagTable copy() {
+      TagTable copy = new TagTable();
+      copy.localByGlobal = localByGlobal.clone();
+      copy.globalByLocal = globalByLocal.clone();
+      copy.size = size;
+      return copy;
+    }
+  }
+}
@@ -0,0 +1,14 @@
+package ru.mentee.power.notes;
+
+import java.util.Set;
+
+/**
+ * Содержимое заметки, которая ещё не добавлена в сервис, для пакетного
+ * {@link NoteService#addNotes}.
+ *
+ * @param title Заголовок.
+ * @param text  Текст.
+ * @param tags  Набор тегов (может быть null).
+ */
+public record NoteDraft(String title, String text, Set<String> tags) {
+}
@@ -0,0 +1,145 @@
+package ru.mentee.power.notes;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * События Java Flight Recorder для операций {@link NoteService}.
+ *
+ * <p>В записи JFR они видны в категории «Notes» рядом со сборками мусора и ожиданием
+ * блокировок, поэтому медленный поиск можно сопоставить с тем, что в это время делала JVM.
+ * Включаются как обычные события: {@code -XX:StartFlightRecording} с настройками, где включены
+ * {@code ru.mentee.notes.*}, или через {@code jdk.jfr.Recording#enable}.
+ *
+ * <p>Сервис создаёт событие в начале операции и заполняет поля только если
+ * {@link Event#shouldCommit()} вернул {@code true}. Пока запись выключена, JIT убирает и создание
+ * события, и его методы, а строки запроса не строятся вовсе.
+ */
+final class NoteEvents {
+
+  private NoteEvents() {
+  }
+
+  /**
+   * Заполняет и записывает событие поиска, если оно включено и превысило порог.
+   *
+   * @param event     событие, начатое в начале операции
+   * @param operation имя метода сервиса
+   * @param query     запрос; в строку переводится только при записи события
+   * @param index     использованный индекс или {@code "scan"} для перебора всех заметок
+   * @param scanned   сколько заметок просмотрено
+   * @param results   сколько заметок найдено
+   */
+  static void commit(Search event, String operation, Object query, String index, int scanned,
+      int results) {
+    if (event.shouldCommit()) {
+      event.operation = operation;
+      event.query = String.valueOf(query);
+      event.index = index;
+      event.notesScanned = scanned;
+      event.resultCount = results;
+      event.commit();
+    }
+  }
+
+  /**
+   * Заполняет и записывает событие изменения, если оно включено и превысило порог.
+   *
+   * @param event     событие, начатое в начале операции
+   * @param operation имя метода сервиса
+   * @param noteId    идентификатор заметки
+   * @param found     нашлась ли заметка
+   */
+  static void commit(Update event, String operation, int noteId, boolean found) {
+    if (event.shouldCommit()) {
+      event.operation = operation;
+      event.noteId = noteId;
+      event.found = found;
+      event.commit();
+    }
+  }
+
+  /**
+   * Добавление заметки.
+   */
+  @Name("ru.mentee.notes.NoteAdded")
+  @Label("Note Added")
+  @Category("Notes")
+  @StackTrace(false)
+  static final class Add extends Event {
+
+    @Label("Note Id")
+    int noteId;
+
+    @Label("Tag Count")
+    int tagCount;
+  }
+
+  /**
+   * Изменение существующей заметки: заголовка и текста или тегов.
+   */
+  @Name("ru.mentee.notes.NoteUpdated")
+  @Label("Note Updated")
+  @Category("Notes")
+  @StackTrace(false)
+  static final class Update extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Note Id")
+    int noteId;
+
+    @Label("Found")
+    @Description("Заметка с таким идентификатором существовала")
+    boolean found;
+  }
+
+  /**
+   * Удаление заметки.
+   */
+  @Name("ru.mentee.notes.NoteDeleted")
+  @Label("Note Deleted")
+  @Category("Notes")
+  @StackTrace(false)
+  static final class Delete extends Event {
+
+    @Label("Note Id")
+    int noteId;
+
+    @Label("Found")
+    @Description("Заметка с таким идентификатором существовала")
+    boolean found;
+  }
+
+  /**
+   * Поиск заметок по тексту, словам или тегам.
+   */
+  @Name("ru.mentee.notes.NoteSearch")
+  @Label("Note Search")
+  @Category("Notes")
+  @StackTrace(false)
+  static final class Search extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Query")
+    String query;
+
+    @Label("Index")
+    @Description("Индекс, по которому отобраны кандидаты, или scan для перебора всех заметок")
+    String index;
+
+    @Label("Notes Scanned")
+    @Description("Сколько заметок просмотрено: кандидаты из индекса или все заметки при переборе")
+    int notesScanned;
+
+    @Label("Result Count")
+    int resultCount;
+  }
+}
@@ -0,0 +1,58 @@
+package ru.mentee.power.notes;
+
+/**
+ * Наблюдатель за изменениями заметки.
+ *
+ * <p>Вызывается самой {@link Note} под её монитором сразу после изменения, поэтому события одной
+ * заметки приходят строго в порядке изменений. {@link NoteService} использует наблюдателя, чтобы
+ * индексы и журнал изменений оставались согласованными, даже если заметку меняют напрямую через
+ * её сеттеры.
+ *
+ * <p>Если метод наблюдателя бросает исключение, заметка возвращает прежнее значение и передаёт
+ * исключение дальше. Поэтому наблюдатель должен сначала выполнить то, что может не удаться, и
+ * только потом менять своё состояние.
+ */
+interface NoteListener {
+
+  /**
+   * Заголовок заметки изменён.
+   *
+   * @param note     заметка (уже с новым заголовком)
+   * @param oldTitle прежний заголовок
+   */
+  void titleChanged(Note note, String oldTitle);
+
+  /**
+   * Текст заметки изменён.
+   *
+   * @param note    заметка (уже с новым текстом)
+   * @param oldText прежний текст
+   */
+  void textChanged(Note note, String oldText);
+
+  /**
+   * Заголовок и текст заметки изменены одной операцией {@link Note#update}. Изменилось хотя бы
+   * одно из полей.
+   *
+   * @param note     заметка (уже с новыми заголовком и текстом)
+   * @param oldTitle прежний заголовок
+   * @param oldText  прежний текст
+   */
+  void contentChanged(Note note, String oldTitle, String oldText);
+
+  /**
+   * Тег добавлен к заметке.
+   *
+   * @param note    заметка
+   * @param tagCode код добавленного тега в {@link TagDictionary#GLOBAL}
+   */
+  void tagAdded(Note note, int tagCode);
+
+  /**
+   * Тег удалён из заметки.
+   *
+   * @param note    заметка
+   * @param tagCode код удалённого тега в {@link TagDictionary#GLOBAL}
+   */
+  void tagRemoved(Note note, int tagCode);
+}
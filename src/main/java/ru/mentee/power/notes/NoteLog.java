@@ -0,0 +1,808 @@
+package ru.mentee.power.notes;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Журнал изменений заметок, в который записи только дописываются (write-ahead log).
+ *
+ * <p>Файл начинается с заголовка {@code int MAGIC | int VERSION | long начальная позиция}, за
+ * которым идут записи:
+ * <pre>
+ *   int длина полезной нагрузки | int CRC32C нагрузки | byte тип | поля записи
+ * </pre>
+ * Поля кодируются {@link NoteCodec}: числа — varint, строки — varint длина и UTF-8, создание
+ * заметки — заметка целиком. Теги записываются локальными кодами журнала
+ * ({@link NoteCodec.TagTable}): когда тег встречается впервые, перед записью с ним в тот же пакет
+ * кладётся запись-определение «код → строка». Коды {@link TagDictionary} действуют только внутри
+ * процесса, поэтому в файл не попадают.
+ *
+ * <p>При открытии журнал читается с начала, и записи передаются {@link Replayer}. Хвост, который
+ * не дописался из-за сбоя (неполная запись или неверная контрольная сумма), отрезается, и новые
+ * записи продолжают журнал с последней целой записи.
+ *
+ * <p>Позиции журнала ({@link #position()}) сквозные: они считаются от первой записи за всю
+ * историю файла и не меняются, когда {@link #truncate(long)} отрезает начало, уже покрытое
+ * снимком. Начальная позиция из заголовка — позиция первой записи, оставшейся в файле.
+ *
+ * <p>Запись идёт групповой фиксацией (group commit). Поток кладёт свою запись в общий буфер
+ * пакета и ждёт, пока она окажется в файле. Первый ожидающий становится ведущим: забирает весь
+ * накопленный пакет, отпускает блокировку и пишет его одним вызовом {@code write} и, при
+ * {@link FsyncPolicy#PER_OPERATION}, одним {@code force}. Пока ведущий ждёт диска, остальные
+ * потоки собирают следующий пакет. Каждый вызов возвращается только после того, как его запись
+ * записана (и сброшена на диск, если этого требует политика), поэтому гарантии надёжности те же,
+ * что и при отдельном {@code fsync} на каждую операцию, а число {@code fsync} в секунду больше не
+ * ограничивает число операций.
+ *
+ * <p>Ошибки записи передаются как {@link UncheckedIOException}: они возникают внутри обычных
+ * операций сервиса, которые не объявляют проверяемых исключений. После неудачной записи
+ * содержимое хвоста файла неизвестно, поэтому все последующие записи тоже завершаются ошибкой.
+ * Класс потокобезопасен.
+ */
+final class NoteLog implements Closeable {
+
+  /** Интервал фонового сброса на диск для {@link FsyncPolicy#PERIODIC}. */
+  static final Duration PERIODIC_FSYNC_INTERVAL = Duration.ofSeconds(1);
+
+  private static final int MAGIC = 0x4E4C4F47;
+
+  /** Версия файла; покрывает и формат заметок {@link NoteCodec}. */
+  private static final int VERSION = 4;
+
+  /** Размер заголовка файла; первая запись начинается сразу за ним. */
+  static final int FILE_HEADER_BYTES = 2 * Integer.BYTES + Long.BYTES;
+
+  private static final int HEADER_BYTES = 2 * Integer.BYTES;
+
+  private static final int READ_BUFFER_BYTES = 64 * 1024;
+
+  private static final int BATCH_BUFFER_BYTES = 64 * 1024;
+
+  /** Буфер пакета больше этого размера (после пакетной вставки) не сохраняется для повтора. */
+  private static final int MAX_RETAINED_BUFFER_BYTES = 4 * 1024 * 1024;
+
+  private static final byte ADDED = 1;
+
+  private static final byte TITLE_CHANGED = 2;
+
+  private static final byte TEXT_CHANGED = 3;
+
+  private static final byte TAG_ADDED = 4;
+
+  private static final byte TAG_REMOVED = 5;
+
+  private static final byte DELETED = 6;
+
+  private static final byte TAG_DEFINED = 7;
+
+  private static final byte UPDATED = 8;
+
+  private final Path file;
+
+  /**
+   * Открытый файл журнала. Заменяется в {@link #truncate(long)} под {@link #lock}, когда никто не
+   * пишет пакет, поэтому ведущий может писать в него без блокировки.
+   */
+  private volatile FileChannel channel;
+
+  private final FsyncPolicy policy;
+
+  private final ScheduledExecutorService syncer;
+
+  private final CRC32C crc = new CRC32C();
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  /** Сигнал о завершении записи очередного пакета. */
+  private final Condition batchWritten = lock.newCondition();
+
+  /** Записи, которые ещё не забрал ведущий; изменяется под {@link #lock}. */
+  private ByteBuffer pending = ByteBuffer.allocate(BATCH_BUFFER_BYTES);
+
+  /** Освободившийся буфер прошлого пакета, чтобы не выделять новый; под {@link #lock}. */
+  private ByteBuffer spare = ByteBuffer.allocate(BATCH_BUFFER_BYTES);
+
+  /** Локальные коды тегов журнала; под {@link #lock}. */
+  private final NoteCodec.TagTable tags;
+
+  /** Начало текущей собираемой записи в {@link #pending}; под {@link #lock}. */
+  private int recordStart;
+
+  /** Позиция первой записи, оставшейся в файле; под {@link #lock}. */
+  private long base;
+
+  /** Конец принятых от вызывающих записей (позиция журнала); под {@link #lock}. */
+  private long appended;
+
+  /** Конец записей, которые уже записаны в файл; под {@link #lock}. */
+  private long written;
+
+  /** Какой-то поток сейчас пишет пакет; под {@link #lock}. */
+  private boolean writing;
+
+  /** Ошибка записи или фонового сброса; после неё журнал больше не принимает записи. */
+  private volatile IOException failure;
+
+  private NoteLog(Path file, FileChannel channel, FsyncPolicy policy, NoteCodec.TagTable tags,
+      long base, long end) {
+    this.file = file;
+    this.channel = channel;
+    this.policy = policy;
+    this.tags = tags;
+    this.base = base;
+    this.appended = end;
+    this.written = end;
+    if (policy == FsyncPolicy.PERIODIC) {
+      syncer = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "note-log-fsync");
+        thread.setDaemon(true);
+        return thread;
+      });
+      long interval = PERIODIC_FSYNC_INTERVAL.toMillis();
+      syncer.scheduleWithFixedDelay(this::syncQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    } else {
+      syncer = null;
+    }
+  }
+
+  /**
+   * Открывает журнал (создавая файл при необходимости) и проигрывает уже записанные изменения,
+   * начиная с позиции {@code from}.
+   *
+   * @param file     файл журнала
+   * @param policy   когда сбрасывать записи на диск
+   * @param from     позиция первой проигрываемой записи (0 — весь журнал, иначе значение
+   *                 {@link #position()}, сохранённое вместе со снимком)
+   * @param tags     словарь тегов журнала на позиции {@code from} (сохранённый вместе со снимком)
+   *                 или {@code null}, если журнал читается целиком
+   * @param replayer получатель записанных ранее изменений
+   * @return журнал, готовый к дописыванию
+   * @throws IOException если файл не удалось открыть или прочитать, если он короче
+   *                     {@code from} или уже не содержит записей до {@code from}, или если он
+   *                     записан в неизвестном формате
+   */
+  static NoteLog open(Path file, FsyncPolicy policy, long from, NoteCodec.TagTable tags,
+      Replayer replayer) throws IOException {
+    FileChannel channel = FileChannel.open(file,
+        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      long base = 0;
+      if (channel.size() == 0) {
+        channel.write(header(base), 0);
+        channel.force(false);
+      } else {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BYTES);
+        channel.read(header, 0);
+        if (header.position() < FILE_HEADER_BYTES || header.getInt(0) != MAGIC
+            || header.getInt(Integer.BYTES) != VERSION) {
+          throw new IOException("Unsupported note log format: " + file);
+        }
+        base = header.getLong(2 * Integer.BYTES);
+      }
+      if (from < base) {
+        throw new IOException("Note log " + file + " starts at position " + base
+            + ", after the snapshot position " + from + "; the snapshot is missing or stale");
+      }
+      long offset = FILE_HEADER_BYTES + from - base;
+      if (channel.size() < offset) {
+        throw new IOException("Note log " + file + " is shorter than the snapshot position "
+            + from);
+      }
+      NoteCodec.TagTable table = tags != null ? tags.copy() : new NoteCodec.TagTable();
+      long end = replay(channel, offset, table, replayer);
+      if (end < channel.size()) {
+        channel.truncate(end);
+        channel.force(false);
+      }
+      channel.position(end);
+      return new NoteLog(file, channel, policy, table, base, base + end - FILE_HEADER_BYTES);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Записывает создание заметки вместе с тегами.
+   *
+   * @param note новая заметка; вызывающий удерживает её монитор
+   * @throws UncheckedIOException если запись не удалась
+   */
+  void logAdded(Note note) {
+    lock.lock();
+    try {
+      for (int tagCode : note.tagCodes()) {
+        defineTag(tagCode);
+      }
+      ByteBuffer buffer = begin(1 + NoteCodec.encodedSize(note, tags));
+      NoteCodec.encode(buffer.put(ADDED), note, tags);
+      commit();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Записывает создание нескольких заметок одним пакетом: записи идут подряд, и вызов ждёт
+   * одной записи в файл (и одного сброса на диск) для всех.
+   *
+   * @param notes новые заметки, ещё не видимые другим потокам
+   * @throws UncheckedIOException если запись не удалась
+   */
+  void logAdded(Collection<Note> notes) {
+    lock.lock();
+    try {
+      for (Note note : notes) {
+        for (int tagCode : note.tagCodes()) {
+          defineTag(tagCode);
+        }
+        ByteBuffer buffer = begin(1 + NoteCodec.encodedSize(note, tags));
+        NoteCodec.encode(buffer.put(ADDED), note, tags);
+        seal();
+      }
+      await(appended);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Записывает новый заголовок заметки.
+   *
+   * @param id    идентификатор заметки
+   * @param title новый заголовок
+   * @throws UncheckedIOException если запись не удалась
+   */
+  void logTitleChanged(int id, String title) {
+    logString(TITLE_CHANGED, id, title);
+  }
+
+  /**
+   * Записывает новый текст заметки.
+   *
+   * @param id   идентификатор заметки
+   * @param text новый текст
+   * @throws UncheckedIOException если запись не удалась
+   */
+  void logTextChanged(int id, String text) {
+    logString(TEXT_CHANGED, id, text);
+  }
+
+  /**
+   * Записывает новые заголовок и текст заметки одной записью, чтобы они применились вместе: после
+   * сбоя журнал содержит либо оба значения, либо ни одного.
+   *
+   * @param id    идентификатор заметки
+   * @param title новый заголовок
+   * @param text  новый текст
+   * @throws UncheckedIOException если запись не удалась
+   */
+  void logUpdated(int id, String title, String text) {
+    lock.lock();
+    try {
+      ByteBuffer buffer = begin(1 + NoteCodec.varintSize(id) + NoteCodec.stringSize(title)
+          + NoteCodec.stringSize(text));
+      NoteCodec.putVarint(buffer.put(UPDATED), id);
+      NoteCodec.putString(buffer, title);
+      NoteCodec.putString(buffer, text);
+      commit();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Записывает добавление тега.
+   *
+   * @param id      идентификатор заметки
+   * @param tagCode код тега в {@link TagDictionary#GLOBAL}
+   * @throws UncheckedIOException если запись не удалась
+   */
+  void logTagAdded(int id, int tagCode) {
+    logTag(TAG_ADDED, id, tagCode);
+  }
+
+  /**
+   * Записывает удаление тега.
+   *
+   * @param id      идентификатор заметки
+   * @param tagCode код тега в {@link TagDictionary#GLOBAL}
+   * @throws UncheckedIOException если запись не удалась
+   */
+  void logTagRemoved(int id, int tagCode) {
+    logTag(TAG_REMOVED, id, tagCode);
+  }
+
+  /**
+   * Записывает удаление заметки.
+   *
+   * @param id идентификатор заметки
+   * @throws UncheckedIOException если запись не удалась
+   */
+  void logDeleted(int id) {
+    lock.lock();
+    try {
+      NoteCodec.putVarint(begin(1 + NoteCodec.varintSize(id)).put(DELETED), id);
+      commit();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Возвращает копию словаря тегов журнала. В ней есть все теги, которые встречались в записях,
+   * принятых до вызова.
+   *
+   * @return независимая копия словаря
+   */
+  NoteCodec.TagTable tags() {
+    lock.lock();
+    try {
+      return tags.copy();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Возвращает позицию конца записей, которые уже записаны в файл.
+   *
+   * <p>Вызывающий должен сам позаботиться о том, чтобы изменения, записи о которых лежат до этой
+   * позиции, уже были видны в памяти. Тогда снимок состояния, начатый после вызова, вместе с
+   * записями журнала начиная с этой позиции даёт полное состояние.
+   *
+   * @return позиция журнала, до которой записи лежат в файле
+   */
+  long position() {
+    lock.lock();
+    try {
+      return written;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Сбрасывает на диск все записи, которые уже записаны в файл, в том числе до
+   * {@link #position()}, полученной раньше.
+   *
+   * @throws IOException если сброс не удался
+   */
+  void sync() throws IOException {
+    FileChannel current;
+    lock.lock();
+    try {
+      current = channel;
+    } finally {
+      lock.unlock();
+    }
+    current.force(false);
+  }
+
+  /**
+   * Отрезает записи до позиции {@code position}, которые уже покрыты сохранённым снимком, чтобы
+   * журнал не рос бесконечно.
+   *
+   * <p>Оставшиеся записи копируются в новый файл с заголовком, начинающимся с {@code position},
+   * файл сбрасывается на диск и атомарно заменяет журнал. Основная часть копируется без
+   * блокировки; новые записи ждут только, пока дописывается пришедшее за время копирования и
+   * заменяется файл. До замены на диске лежит прежний целый журнал, после неё — новый, и с любым
+   * из них снимок на позиции {@code position} восстанавливает состояние.
+   *
+   * @param position позиция, сохранённая в снимке, который уже атомарно записан на диск
+   * @throws IOException если журнал не удалось переписать; тогда он остаётся прежним
+   */
+  void truncate(long position) throws IOException {
+    long from;
+    long end;
+    lock.lock();
+    try {
+      if (position <= base) {
+        return;
+      }
+      from = base;
+      end = written;
+    } finally {
+      lock.unlock();
+    }
+    // Переименование снимка должно оказаться на диске раньше, чем пропадёт начало журнала.
+    syncDirectory(file);
+    Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+    FileChannel copy = FileChannel.open(temp, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+    try {
+      copy.write(header(position));
+      transfer(channel, FILE_HEADER_BYTES + position - from, end - position, copy);
+      lock.lock();
+      try {
+        while (writing) {
+          batchWritten.awaitUninterruptibly();
+        }
+        IOException error = failure;
+        if (error != null) {
+          throw new IOException("Note log is unusable after a failed write", error);
+        }
+        transfer(channel, FILE_HEADER_BYTES + end - from, written - end, copy);
+        copy.force(false);
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+        FileChannel previous = channel;
+        channel = copy;
+        base = position;
+        previous.close();
+      } finally {
+        lock.unlock();
+      }
+    } catch (IOException | RuntimeException e) {
+      if (channel != copy) {
+        copy.close();
+        Files.deleteIfExists(temp);
+      }
+      throw e;
+    }
+    syncDirectory(file);
+  }
+
+  /**
+   * Останавливает фоновый сброс, сбрасывает журнал на диск и закрывает файл.
+   *
+   * @throws IOException если сброс или закрытие не удались
+   */
+  @Override
+  public void close() throws IOException {
+    if (syncer != null) {
+      syncer.shutdownNow();
+    }
+    lock.lock();
+    try {
+      // Каждый вызов дожидается записи своего пакета, поэтому ждать нужно только ведущего.
+      while (writing) {
+        batchWritten.awaitUninterruptibly();
+      }
+      if (channel.isOpen()) {
+        channel.force(false);
+      }
+    } finally {
+      channel.close();
+      lock.unlock();
+    }
+  }
+
+  private void logString(byte type, int id, String value) {
+    lock.lock();
+    try {
+      ByteBuffer buffer = begin(1 + NoteCodec.varintSize(id) + NoteCodec.stringSize(value));
+      NoteCodec.putVarint(buffer.put(type), id);
+      NoteCodec.putString(buffer, value);
+      commit();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void logTag(byte type, int id, int tagCode) {
+    lock.lock();
+    try {
+      int localCode = defineTag(tagCode);
+      ByteBuffer buffer = begin(1 + NoteCodec.varintSize(id) + NoteCodec.varintSize(localCode));
+      NoteCodec.putVarint(buffer.put(type), id);
+      NoteCodec.putVarint(buffer, localCode);
+      commit();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Возвращает локальный код тега, при первой встрече кладя в пакет запись-определение.
+   * Вызывается под {@link #lock}.
+   */
+  private int defineTag(int tagCode) {
+    int localCode = tags.local(tagCode);
+    if (localCode >= 0) {
+      return localCode;
+    }
+    localCode = tags.add(tagCode);
+    String tag = TagDictionary.GLOBAL.tag(tagCode);
+    ByteBuffer buffer = begin(1 + NoteCodec.varintSize(localCode) + NoteCodec.stringSize(tag));
+    NoteCodec.putVarint(buffer.put(TAG_DEFINED), localCode);
+    NoteCodec.putString(buffer, tag);
+    seal();
+    return localCode;
+  }
+
+  /**
+   * Резервирует в буфере пакета место под заголовок и нагрузку из {@code payloadBytes} байт.
+   * Вызывается под {@link #lock}.
+   */
+  private ByteBuffer begin(int payloadBytes) {
+    IOException error = failure;
+    if (error != null) {
+      throw new UncheckedIOException("Note log is unusable after a failed write", error);
+    }
+    int required = HEADER_BYTES + payloadBytes;
+    if (pending.remaining() < required) {
+      ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.position() + required,
+          pending.capacity() * 2));
+      pending = grown.put(pending.flip());
+    }
+    recordStart = pending.position();
+    pending.position(recordStart + HEADER_BYTES);
+    return pending;
+  }
+
+  /**
+   * Дописывает заголовок собранной записи, оставляя её в пакете. Вызывается под {@link #lock}.
+   */
+  private void seal() {
+    int length = pending.position() - recordStart - HEADER_BYTES;
+    crc.reset();
+    crc.update(pending.array(), recordStart + HEADER_BYTES, length);
+    pending.putInt(recordStart, length).putInt(recordStart + Integer.BYTES, (int) crc.getValue());
+    appended += HEADER_BYTES + length;
+  }
+
+  /**
+   * Завершает собранную запись и ждёт, пока пакет с ней будет записан в файл.
+   * Вызывается под {@link #lock}.
+   */
+  private void commit() {
+    seal();
+    await(appended);
+  }
+
+  /**
+   * Ждёт, пока записи до позиции {@code mine} окажутся в файле, при необходимости сам становясь
+   * ведущим. Вызывается под {@link #lock}.
+   */
+  private void await(long mine) {
+    while (written < mine) {
+      if (failure != null) {
+        throw new UncheckedIOException("Note log write failed", failure);
+      }
+      if (writing) {
+        batchWritten.awaitUninterruptibly();
+      } else {
+        writeBatch();
+      }
+    }
+  }
+
+  /**
+   * Забирает накопленный пакет и пишет его в файл, отпустив блокировку на время ввода-вывода.
+   * Вызывается под {@link #lock} ведущим потоком.
+   */
+  private void writeBatch() {
+    writing = true;
+    ByteBuffer batch = pending.flip();
+    pending = spare;
+    long end = appended;
+    FileChannel target = channel;
+    IOException error = null;
+    lock.unlock();
+    try {
+      while (batch.hasRemaining()) {
+        target.write(batch);
+      }
+      if (policy == FsyncPolicy.PER_OPERATION) {
+        target.force(false);
+      }
+    } catch (IOException e) {
+      error = e;
+    } finally {
+      lock.lock();
+    }
+    spare = batch.capacity() > MAX_RETAINED_BUFFER_BYTES
+        ? ByteBuffer.allocate(BATCH_BUFFER_BYTES) : batch.clear();
+    writing = false;
+    if (error != null) {
+      failure = error;
+    } else {
+      written = end;
+    }
+    batchWritten.signalAll();
+  }
+
+  private void syncQuietly() {
+    try {
+      channel.force(false);
+    } catch (ClosedChannelException e) {
+      // Журнал закрыт или его файл только что заменён; новый файл уже сброшен на диск.
+    } catch (IOException e) {
+      failure = e;
+    }
+  }
+
+  private static ByteBuffer header(long base) {
+    return ByteBuffer.allocate(FILE_HEADER_BYTES).putInt(MAGIC).putInt(VERSION).putLong(base)
+        .flip();
+  }
+
+  /**
+   * Копирует {@code count} байт файла {@code source} начиная с {@code offset} в конец
+   * {@code target}.
+   */
+  private static void transfer(FileChannel source, long offset, long count, FileChannel target)
+      throws IOException {
+    long done = 0;
+    while (done < count) {
+      done += source.transferTo(offset + done, count - done, target);
+    }
+  }
+
+  private static void syncDirectory(Path file) throws IOException {
+    try (FileChannel directory = FileChannel.open(file.toAbsolutePath().getParent(),
+        StandardOpenOption.READ)) {
+      directory.force(true);
+    }
+  }
+
+  /**
+   * Проигрывает целые записи журнала начиная с позиции {@code from}.
+   *
+   * @return позиция сразу за последней целой записью
+   */
+  private static long replay(FileChannel channel, long from, NoteCodec.TagTable tags,
+      Replayer replayer) throws IOException {
+    long size = channel.size();
+    long position = from;
+    ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_BYTES).flip();
+    CRC32C crc = new CRC32C();
+    NoteCodec codec = new NoteCodec();
+    while (true) {
+      buffer = fill(channel, buffer, position + buffer.remaining(), HEADER_BYTES);
+      if (buffer.remaining() < HEADER_BYTES) {
+        return position;
+      }
+      int length = buffer.getInt(buffer.position());
+      int checksum = buffer.getInt(buffer.position() + Integer.BYTES);
+      if (length <= 0 || length > size - position - HEADER_BYTES) {
+        return position;
+      }
+      buffer = fill(channel, buffer, position + buffer.remaining(), HEADER_BYTES + length);
+      int start = buffer.position() + HEADER_BYTES;
+      crc.reset();
+      crc.update(buffer.array(), start, length);
+      if ((int) crc.getValue() != checksum) {
+        return position;
+      }
+      ByteBuffer payload = buffer.slice(start, length);
+      apply(payload, codec, tags, replayer);
+      buffer.position(start + length);
+      position += HEADER_BYTES + length;
+    }
+  }
+
+  /**
+   * Дочитывает файл так, чтобы в буфере было хотя бы {@code required} байт (если файл не
+   * кончится раньше). {@code filePosition} — позиция в файле сразу за данными буфера.
+   */
+  private static ByteBuffer fill(FileChannel channel, ByteBuffer buffer, long filePosition,
+      int required) throws IOException {
+    if (buffer.remaining() >= required) {
+      return buffer;
+    }
+    if (buffer.capacity() < required) {
+      buffer = ByteBuffer.allocate(Math.max(required, buffer.capacity() * 2)).put(buffer);
+    } else {
+      buffer.compact();
+    }
+    long position = filePosition;
+    while (buffer.position() < required) {
+      int read = channel.read(buffer, position);
+      if (read < 0) {
+        break;
+      }
+      position += read;
+    }
+    return buffer.flip();
+  }
+
+  private static void apply(ByteBuffer payload, NoteCodec codec, NoteCodec.TagTable tags,
+      Replayer replayer) throws IOException {
+    byte type = payload.get();
+    try {
+      switch (type) {
+        case ADDED -> replayer.added(codec.decode(payload, tags));
+        case TITLE_CHANGED -> replayer.titleChanged(NoteCodec.getVarint(payload),
+            codec.getString(payload));
+        case TEXT_CHANGED -> replayer.textChanged(NoteCodec.getVarint(payload),
+            codec.getString(payload));
+        case UPDATED -> replayer.updated(NoteCodec.getVarint(payload),
+            codec.getString(payload), codec.getString(payload));
+        case TAG_ADDED -> replayer.tagAdded(NoteCodec.getVarint(payload),
+            tags.global(NoteCodec.getVarint(payload)));
+        case TAG_REMOVED -> replayer.tagRemoved(NoteCodec.getVarint(payload),
+            tags.global(NoteCodec.getVarint(payload)));
+        case DELETED -> replayer.deleted(NoteCodec.getVarint(payload));
+        case TAG_DEFINED -> tags.put(NoteCodec.getVarint(payload),
+            Note.internTag(codec.getString(payload)));
+        default -> throw new IOException("Unknown note log record type: " + type);
+      }
+    } catch (IllegalArgumentException | BufferUnderflowException e) {
+      throw new IOException("Malformed note log record of type " + type, e);
+    }
+  }
+
+  /**
+   * Получатель изменений при проигрывании журнала.
+   *
+   * <p>Записи приходят в том порядке, в котором были сделаны изменения одной заметки. Запись для
+   * заметки, которой уже нет, следует пропускать.
+   */
+  interface Replayer {
+
+    /**
+     * Заметка создана.
+     *
+     * @param note восстановленная заметка без наблюдателя
+     */
+    void added(Note note);
+
+    /**
+     * Заголовок заметки изменён.
+     *
+     * @param id    идентификатор
+     * @param title новый заголовок
+     */
+    void titleChanged(int id, String title);
+
+    /**
+     * Текст заметки изменён.
+     *
+     * @param id   идентификатор
+     * @param text новый текст
+     */
+    void textChanged(int id, String text);
+
+    /**
+     * Заголовок и текст заметки изменены одной операцией.
+     *
+     * @param id    идентификатор
+     * @param title новый заголовок
+     * @param text  новый текст
+     */
+    void updated(int id, String title, String text);
+
+    /**
+     * Тег добавлен.
+     *
+     * @param id      идентификатор
+     * @param tagCode код тега в {@link TagDictionary#GLOBAL}
+     */
+    void tagAdded(int id, int tagCode);
+
+    /**
+     * Тег удалён.
+     *
+     * @param id      идентификатор
+     * @param tagCode код тега в {@link TagDictionary#GLOBAL}
+     */
+    void tagRemoved(int id, int tagCode);
+
+    /**
+     * Заметка удалена.
+     *
+     * @param id идентификатор
+     */
+    void deleted(int id);
+  }
+}
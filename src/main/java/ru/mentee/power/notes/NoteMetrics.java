@@ -0,0 +1,59 @@
+package ru.mentee.power.notes;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Счётчики и гистограммы длительностей публичных операций одного {@link NoteService}.
+ *
+ * <p>Статистика накапливается с создания сервиса и не сбрасывается: сборщик метрик может
+ * периодически брать {@link #snapshot()} и сам считать разницу между соседними снимками. Учёт
+ * вызова стоит два чтения {@link System#nanoTime()} и несколько атомарных операций, без
+ * блокировок и выделения памяти (см. {@link LatencyHistogram}).
+ */
+public final class NoteMetrics {
+
+  private static final NoteOperation[] OPERATIONS = NoteOperation.values();
+
+  private final LatencyHistogram[] histograms = new LatencyHistogram[OPERATIONS.length];
+
+  NoteMetrics() {
+    for (int i = 0; i < histograms.length; i++) {
+      histograms[i] = new LatencyHistogram();
+    }
+  }
+
+  /**
+   * Учитывает завершившийся вызов операции.
+   *
+   * @param operation  операция
+   * @param startNanos значение {@link System#nanoTime()} в начале вызова
+   */
+  void record(NoteOperation operation, long startNanos) {
+    histograms[operation.ordinal()].record(System.nanoTime() - startNanos);
+  }
+
+  /**
+   * Возвращает статистику одной операции.
+   *
+   * @param operation операция
+   * @return снимок статистики
+   */
+  public LatencySnapshot snapshot(NoteOperation operation) {
+    return histograms[operation.ordinal()].snapshot();
+  }
+
+  /**
+   * Возвращает статистику всех операций.
+   *
+   * @return неизменяемый словарь «операция → снимок» в порядке объявления операций
+   */
+  public Map<NoteOperation, LatencySnapshot> snapshot() {
+    Map<NoteOperation, LatencySnapshot> snapshots = new EnumMap<>(NoteOperation.class);
+    for (NoteOperation operation : OPERATIONS) {
+      snapshots.put(operation, snapshot(operation));
+    }
+    return Collections.unmodifiableMap(snapshots);
+  }
+}
@@ -0,0 +1,61 @@
+package ru.mentee.power.notes;
+
+/**
+ * Публичные операции {@link NoteService}, для которых {@link NoteMetrics} ведёт статистику.
+ */
+public enum NoteOperation {
+
+  /** {@link NoteService#addNote}. */
+  ADD_NOTE,
+
+  /** {@link NoteService#addNotes}: один вызов на пакет. */
+  ADD_NOTES,
+
+  /** {@link NoteService#getNoteById}. */
+  GET_NOTE_BY_ID,
+
+  /** {@link NoteService#getAllNotes}. */
+  GET_ALL_NOTES,
+
+  /** {@link NoteService#forEachNote}. */
+  FOR_EACH_NOTE,
+
+  /** {@link NoteService#listNotes}. */
+  LIST_NOTES,
+
+  /** {@link NoteService#updateNoteText}. */
+  UPDATE_NOTE_TEXT,
+
+  /** {@link NoteService#addTagToNote}. */
+  ADD_TAG_TO_NOTE,
+
+  /** {@link NoteService#removeTagFromNote}. */
+  REMOVE_TAG_FROM_NOTE,
+
+  /** {@link NoteService#deleteNote}. */
+  DELETE_NOTE,
+
+  /** Обе перегрузки {@link NoteService#findNotesByText}, в том числе постраничная. */
+  FIND_NOTES_BY_TEXT,
+
+  /** {@link NoteService#findNotesByWords}. */
+  FIND_NOTES_BY_WORDS,
+
+  /** Все перегрузки {@link NoteService#findNotesByTags}, в том числе постраничная. */
+  FIND_NOTES_BY_TAGS,
+
+  /** {@link NoteService#findNotesByAnyTag}. */
+  FIND_NOTES_BY_ANY_TAG,
+
+  /** {@link NoteService#getAllTags}. */
+  GET_ALL_TAGS,
+
+  /** {@link NoteService#getTagCounts}. */
+  GET_TAG_COUNTS,
+
+  /** {@link NoteService#compactStorage}. */
+  COMPACT_STORAGE,
+
+  /** {@link NoteService#snapshot}, в том числе периодические снимки. */
+  SNAPSHOT
+}
@@ -0,0 +1,67 @@
+package ru.mentee.power.notes;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Страница результатов постраничного обхода или поиска заметок.
+ *
+ * <p>Заметки на странице идут по возрастанию ID. Чтобы получить следующую страницу, тот же
+ * запрос повторяют с курсором {@link #nextCursor()}: он указывает на последнюю выданную заметку,
+ * поэтому заметки, добавленные или удалённые между запросами, не сдвигают страницы и не
+ * приводят к повторам. Курсор — непрозрачная строка, её формат может меняться.
+ *
+ * @param notes      Заметки страницы (неизменяемый список).
+ * @param nextCursor Курсор следующей страницы или null, если это последняя страница.
+ */
+public record NotePage(List<Note> notes, String nextCursor) {
+
+  private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+  private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+  /**
+   * Проверяет, есть ли следующая страница.
+   *
+   * @return true, если {@link #nextCursor()} не null.
+   */
+  public boolean hasNext() {
+    return nextCursor != null;
+  }
+
+  /**
+   * Кодирует курсор, указывающий на заметку.
+   *
+   * @param lastId ID последней заметки страницы
+   * @return непрозрачный курсор
+   */
+  static String encodeCursor(int lastId) {
+    return ENCODER.encodeToString(ByteBuffer.allocate(Integer.BYTES).putInt(lastId).array());
+  }
+
+  /**
+   * Разбирает курсор.
+   *
+   * @param cursor курсор или {@code null} для первой страницы
+   * @return ID последней заметки предыдущей страницы; 0 для первой страницы
+   * @throws IllegalArgumentException если строка не является курсором
+   */
+  static int decodeCursor(String cursor) {
+    if (cursor == null) {
+      return 0;
+    }
+    byte[] bytes;
+    try {
+      bytes = DECODER.decode(cursor);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Invalid page cursor: " + cursor, e);
+    }
+    int lastId = bytes.length == Integer.BYTES ? ByteBuffer.wrap(bytes).getInt() : -1;
+    // Курсор указывает на выданную заметку, поэтому Integer.MAX_VALUE в нём не бывает.
+    if (lastId < 0 || lastId == Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Invalid page cursor: " + cursor);
+    }
+    return lastId;
+  }
+}
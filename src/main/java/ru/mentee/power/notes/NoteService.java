@@ -1,6 +1,12 @@
 package ru.mentee.power.notes;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -8,8 +14,19 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Сервис для управления заметками.
@@ -23,15 +40,217 @@ import java.util.stream.Collectors;
  *   <li>удаление заметок;</li>
  *   <li>получение всех заметок и всех тегов.</li>
  * </ul>
- * Внутренне заметки хранятся в {@link HashMap}, а уникальные идентификаторы
- * выдаются с помощью {@link AtomicInteger}.
+ * Внутренне заметки хранятся в {@link NoteStore} (по умолчанию поверх {@link HashMap}, см.
+ * {@link StorageType}), а уникальные идентификаторы выдаются с помощью {@link AtomicInteger}.
+ *
+ * <p>В конкурентном режиме ({@link #NoteService(boolean)}) вместо {@link HashMap} используется
+ * {@link ConcurrentHashMap}: чтение не блокируется записью, а изменения одной заметки
+ * сериализуются её собственным монитором, поэтому внешняя глобальная блокировка не нужна.
+ *
+ * <p>Поиск по тегам, словам и подстрокам идёт через инвертированные индексы
+ * {@link InvertedIndex}: по тегам, по словам текста и по {@link Trigrams триграммам} текста.
+ * Индексы обновляются наблюдателем {@link NoteListener}, который подключён к каждой заметке
+ * сервиса, поэтому они остаются актуальными и при прямом изменении заметки через её сеттеры.
+ *
+ * <p>Сервис, открытый через {@link #open(Path, FsyncPolicy)}, хранит заметки на диске: каждое
+ * изменение дописывается в журнал {@link NoteLog}, а при следующем открытии журнал проигрывается
+ * заново. Чтобы не проигрывать всю историю, {@link #snapshot()} сохраняет снимок всех заметок
+ * ({@link NoteSnapshot}); при открытии загружается снимок и только хвост журнала после него.
+ * Такой сервис нужно закрыть методом {@link #close()}.
+ *
+ * <p>Число вызовов и распределение длительностей каждой публичной операции доступны через
+ * {@link #metrics()}. Добавление, изменение, удаление и поиск заметок дополнительно видны в
+ * записи Java Flight Recorder как события {@link NoteEvents}.
  */
-public class NoteService {
+public class NoteService implements AutoCloseable {
 
-  private final Map<Integer, Note> notes = new HashMap<>();
+  /** Порог параллельного перебора по умолчанию. */
+  public static final int DEFAULT_PARALLEL_SCAN_THRESHOLD = 8192;
+
+  /** Имя файла журнала в каталоге сервиса. */
+  static final String LOG_FILE = "notes.log";
+
+  /** Имя файла снимка в каталоге сервиса. */
+  static final String SNAPSHOT_FILE = "notes.snapshot";
+
+
+  private final NoteStore notes;
 
   private final AtomicInteger nextId = new AtomicInteger(1);
 
+  private final boolean concurrent;
+
+  private final InvertedIndex<Integer> tagIndex;
+
+  private final InvertedIndex<String> wordIndex;
+
+  private final InvertedIndex<Long> trigramIndex;
+
+  private final NoteListener changeTracker = new ChangeTracker();
+
+  private final NoteMetrics metrics = new NoteMetrics();
+
+  /** Порог параллельного перебора, см. {@link #setParallelScanThreshold(int)}. */
+  private volatile int parallelScanThreshold = DEFAULT_PARALLEL_SCAN_THRESHOLD;
+
+  /** Журнал изменений; {@code null} у сервиса в памяти и пока журнал проигрывается. */
+  private NoteLog log;
+
+  /** Каталог данных; {@code null} у сервиса в памяти. */
+  private Path directory;
+
+  /** Планировщик периодических снимков; {@code null}, если они не включены. */
+  private ScheduledExecutorService snapshotter;
+
+  /** Сериализует снимки между собой и с закрытием сервиса. */
+  private final Object snapshotLock = new Object();
+
+  /**
+   * Пакетная вставка держит блокировку чтения, пока её записи попадают в журнал и заметки
+   * становятся видимыми; снимок берёт блокировку записи на время чтения позиции журнала, поэтому
+   * до этой позиции не бывает записей о ещё невидимых заметках.
+   */
+  private final ReadWriteLock publishLock = new ReentrantReadWriteLock();
+
+  /**
+   * Создаёт однопоточный сервис заметок.
+   */
+  public NoteService() {
+    this(false);
+  }
+
+  /**
+   * Создаёт сервис заметок.
+   *
+   * @param concurrent {@code true} — сервис можно безопасно использовать из нескольких потоков
+   *                   без внешней синхронизации.
+   */
+  public NoteService(boolean concurrent) {
+    this(StorageType.HASH_MAP, concurrent);
+  }
+
+  /**
+   * Создаёт сервис заметок с выбранным способом хранения.
+   *
+   * @param storageType способ хранения заметок.
+   * @param concurrent  {@code true} — сервис можно безопасно использовать из нескольких потоков
+   *                    без внешней синхронизации.
+   */
+  public NoteService(StorageType storageType, boolean concurrent) {
+    this.concurrent = concurrent;
+    this.notes = createStore(storageType, concurrent);
+    this.tagIndex = new InvertedIndex<>(concurrent);
+    this.wordIndex = new InvertedIndex<>(concurrent);
+    this.trigramIndex = new InvertedIndex<>(concurrent);
+  }
+
+  /**
+   * Открывает сервис, который хранит заметки в каталоге {@code directory}.
+   *
+   * <p>Если в каталоге уже есть журнал, все записанные изменения проигрываются, и сервис
+   * продолжает с того же состояния, включая счётчик идентификаторов. Сервис работает в
+   * конкурентном режиме; изменение, которое не удалось записать в журнал, завершается
+   * {@link UncheckedIOException}.
+   *
+   * @param directory каталог данных (создаётся при необходимости).
+   * @param policy    когда сбрасывать журнал на диск.
+   * @return открытый сервис; его нужно закрыть.
+   * @throws IOException если журнал не удалось открыть или прочитать.
+   */
+  public static NoteService open(Path directory, FsyncPolicy policy) throws IOException {
+    return open(directory, policy, null);
+  }
+
+  /**
+   * Открывает сервис, который хранит заметки в каталоге {@code directory} и периодически
+   * сохраняет их снимок.
+   *
+   * <p>При открытии загружается последний целый снимок, а журнал проигрывается только после
+   * позиции, которую снимок уже отражает. Если снимка нет или он повреждён, журнал проигрывается
+   * целиком; если же начало журнала уже отрезано после снимка, сервис не открывается, чтобы не
+   * потерять заметки молча.
+   *
+   * @param directory        каталог данных (создаётся при необходимости).
+   * @param policy           когда сбрасывать журнал на диск.
+   * @param snapshotInterval как часто сохранять снимок в фоне ({@code null} — только вручную
+   *                         через {@link #snapshot()}).
+   * @return открытый сервис; его нужно закрыть.
+   * @throws IOException если снимок или журнал не удалось прочитать или если снимка, на который
+   *                     рассчитан журнал, нет или он повреждён.
+   */
+  public static NoteService open(Path directory, FsyncPolicy policy, Duration snapshotInterval)
+      throws IOException {
+    Files.createDirectories(directory);
+    NoteService service = new NoteService(true);
+    NoteLog.Replayer replayer = service.new LogReplayer();
+    NoteSnapshot.Header header = NoteSnapshot.read(directory.resolve(SNAPSHOT_FILE), replayer);
+    long logPosition = 0;
+    NoteCodec.TagTable logTags = null;
+    if (header != null) {
+      logPosition = header.logPosition();
+      logTags = header.tags();
+      service.nextId.accumulateAndGet(header.nextId(), Math::max);
+    }
+    service.log = NoteLog.open(directory.resolve(LOG_FILE), policy, logPosition, logTags,
+        replayer);
+    service.directory = directory;
+    if (snapshotInterval != null) {
+      service.snapshotter = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "note-snapshot");
+        thread.setDaemon(true);
+        return thread;
+      });
+      long interval = snapshotInterval.toMillis();
+      service.snapshotter.scheduleWithFixedDelay(
+          service::snapshotQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+    return service;
+  }
+
+  private static NoteStore createStore(StorageType storageType, boolean concurrent) {
+    return switch (storageType) {
+      case HASH_MAP -> new MapNoteStore(concurrent ? new ConcurrentHashMap<>() : new HashMap<>());
+      case PRIMITIVE_MAP -> concurrent ? new LockingNoteStore(new IntNoteMap()) : new IntNoteMap();
+      case CHUNKED_ARRAY -> new ChunkedNoteStore();
+    };
+  }
+
+  /**
+   * Возвращает порог параллельного перебора в {@link #findNotesByText(String)}.
+   *
+   * @return Наименьшее число проверяемых заметок, при котором перебор идёт в несколько потоков.
+   */
+  public int getParallelScanThreshold() {
+    return parallelScanThreshold;
+  }
+
+  /**
+   * Задаёт порог параллельного перебора в {@link #findNotesByText(String)}.
+   *
+   * <p>Меньшие переборы идут в вызывающем потоке: на них разделение работы и сбор частей
+   * результата обходятся дороже самой проверки. {@link Integer#MAX_VALUE} отключает
+   * параллельный перебор. Порог можно менять в любой момент, в том числе в конкурентном режиме.
+   *
+   * @param threshold Наименьшее число проверяемых заметок для параллельного перебора.
+   * @throws IllegalArgumentException если порог отрицателен.
+   */
+  public void setParallelScanThreshold(int threshold) {
+    if (threshold < 0) {
+      throw new IllegalArgumentException("Parallel scan threshold must not be negative: "
+          + threshold);
+    }
+    parallelScanThreshold = threshold;
+  }
+
+  /**
+   * Сообщает, работает ли сервис в конкурентном режиме.
+   *
+   * @return true, если сервис создан для многопоточного доступа.
+   */
+  public boolean isConcurrent() {
+    return concurrent;
+  }
+
   /**
    * Добавляет новую заметку.
    *
@@ -41,16 +260,96 @@ public class NoteService {
    * @return Созданная заметка с присвоенным ID.
    */
   public Note addNote(String title, String text, Set<String> tags) {
-    int id = nextId.getAndIncrement();
-    Note note = new Note(id, title, text);
-    if (tags != null) {
-      for (String tag : tags) {
-        note.addTag(tag);
+    NoteEvents.Add event = new NoteEvents.Add();
+    event.begin();
+    long start = System.nanoTime();
+    try {
+      Note note = new Note(nextId.getAndIncrement(), title, text);
+      if (tags != null) {
+        for (String tag : tags) {
+          note.addTag(tag);
+        }
+
+      }
+      // Запись о создании делается под монитором уже видимой заметки: изменения этой заметки
+      // попадут в журнал только после неё, а снимок не пропустит заметку, уже записанную в журнал.
+      synchronized (note) {
+        insert(note);
+        if (log != null) {
+          try {
+            log.logAdded(note);
+          } catch (RuntimeException e) {
+            notes.remove(note.getId());
+            unlink(note);
+            throw e;
+          }
+        }
+      }
+      if (event.shouldCommit()) {
+        event.noteId = note.getId();
+        event.tagCount = note.tagCodes().length;
+        event.commit();
+      }
+      return note;
+    } finally {
+      metrics.record(NoteOperation.ADD_NOTE, start);
+    }
+  }
+
+  /**
+   * Добавляет несколько заметок за один вызов.
+   *
+   * <p>Результат тот же, что у {@link #addNote} для каждого черновика по порядку, но накладные
+   * расходы платятся один раз на пакет: идентификаторы резервируются одним атомарным шагом,
+   * каждый различный тег нормализуется один раз, хранилище заранее расширяется, индексы
+   * обновляются одним изменением на ключ, а в журнал пакет пишется одной записью на диск.
+   * Заметки пакета становятся видимыми все вместе, после записи в журнал.
+   *
+   * @param drafts Черновики заметок.
+   * @return Созданные заметки в порядке черновиков, с идущими подряд ID.
+   */
+  public List<Note> addNotes(Collection<NoteDraft> drafts) {
+    long start = System.nanoTime();
+    try {
+      if (drafts.isEmpty()) {
+        return List.of();
+      }
+      int firstId = nextId.getAndAdd(drafts.size());
+      Map<String, Integer> tagCodes = new HashMap<>();
+      List<Note> batch = new ArrayList<>(drafts.size());
+      for (NoteDraft draft : drafts) {
+        Note note = new Note(firstId + batch.size(), draft.title(), draft.text());
+        if (draft.tags() != null) {
+          for (String tag : draft.tags()) {
+            note.addTagCode(tagCodes.computeIfAbsent(tag, Note::internTag));
+          }
+        }
+        batch.add(note);
       }
 
+      indexAll(batch);
+      try {
+        if (log != null) {
+          publishLock.readLock().lock();
+          try {
+            log.logAdded(batch);
+            publishAll(batch);
+          } finally {
+            publishLock.readLock().unlock();
+          }
+        } else {
+          publishAll(batch);
+        }
+      } catch (RuntimeException e) {
+        for (Note note : batch) {
+          unlink(note);
+        }
+        throw e;
+      }
+      return Collections.unmodifiableList(batch);
+    } finally {
+      metrics.record(NoteOperation.ADD_NOTES, start);
     }
-    notes.put(id, note);
-    return note;
   }
 
   /**
@@ -60,18 +359,90 @@ public class NoteService {
    * @return Optional с заметкой, если найдена, иначе Optional.empty().
    */
   public Optional<Note> getNoteById(int id) {
-    return Optional.ofNullable(notes.get(id));
+    long start = System.nanoTime();
+    try {
+      return Optional.ofNullable(notes.get(id));
+    } finally {
+      metrics.record(NoteOperation.GET_NOTE_BY_ID, start);
+    }
   }
 
   /**
    * Получает все заметки.
    *
+   * <p>Копирует ссылки на все заметки в новый список. Чтобы только обойти или отфильтровать
+   * заметки, дешевле {@link #streamNotes()} или {@link #forEachNote(Consumer)}.
+   *
    * @return Неизменяемый список всех заметок.
    */
   public List<Note> getAllNotes() {
+    long start = System.nanoTime();
+    try {
+      List<Note> notesList = new ArrayList<>(notes.size());
+      for (Note note : notes) {
+        notesList.add(note);
+      }
+      return Collections.unmodifiableList(notesList);
+    } finally {
+      metrics.record(NoteOperation.GET_ALL_NOTES, start);
+    }
+  }
+
+  /**
+   * Возвращает поток всех заметок, который читает хранилище напрямую, без копирования.
+   *
+   * <p>В конкурентном режиме обход слабо согласован: он не блокирует изменения, выдаёт каждую
+   * заметку не больше одного раза и видит все заметки, которые существовали всё время обхода;
+   * добавленные или удалённые во время обхода могут как попасть в него, так и нет. Поток хорошо
+   * делится для {@link Stream#parallel()}. Исключение — {@link StorageType#PRIMITIVE_MAP} в
+   * конкурентном режиме: там обход идёт по снимку ссылок, снятому под блокировкой чтения.
+   *
+   * <p>Поток ленивый, поэтому в {@link #metrics()} он не учитывается.
+   *
+   * @return Поток заметок; при {@link StorageType#CHUNKED_ARRAY} — в порядке возрастания ID.
+   */
+  public Stream<Note> streamNotes() {
+    return StreamSupport.stream(notes.spliterator(), false);
+  }
 
-    List<Note> notesList = new ArrayList<>(notes.values());
-    return Collections.unmodifiableList(notesList);
+  /**
+   * Передаёт каждую заметку обработчику, не копируя хранилище.
+   *
+   * <p>Согласованность такая же, как у {@link #streamNotes()}. Обработчик вызывается в текущем
+   * потоке и может изменять заметки; удалять их из обработчика можно только в конкурентном
+   * режиме.
+   *
+   * @param action Обработчик заметки.
+   */
+  public void forEachNote(Consumer<? super Note> action) {
+    long start = System.nanoTime();
+    try {
+      notes.spliterator().forEachRemaining(action);
+    } finally {
+      metrics.record(NoteOperation.FOR_EACH_NOTE, start);
+    }
+  }
+
+  /**
+   * Получает страницу заметок в порядке возрастания ID.
+   *
+   * <p>Обход начинается сразу после заметки курсора и останавливается, как только страница
+   * заполнена, поэтому стоимость пропорциональна размеру страницы, а не числу заметок.
+   *
+   * @param limit  Наибольшее число заметок на странице.
+   * @param cursor Курсор из {@link NotePage#nextCursor()} или null для первой страницы.
+   * @return Страница заметок.
+   * @throws IllegalArgumentException если limit не положителен или курсор некорректен.
+   */
+  public NotePage listNotes(int limit, String cursor) {
+    long start = System.nanoTime();
+    try {
+      PageBuilder page = new PageBuilder(limit, note -> true);
+      notes.forEachInRange(NotePage.decodeCursor(cursor) + 1, nextId.get(), page);
+      return page.build();
+    } finally {
+      metrics.record(NoteOperation.LIST_NOTES, start);
+    }
   }
 
   /**
@@ -83,14 +454,19 @@ public class NoteService {
    * @return true, если заметка найдена и обновлена, иначе false.
    */
   public boolean updateNoteText(int id, String newTitle, String newText) {
-
-    Note note = notes.get(id);
-    if (note == null) {
-      return false;
+    NoteEvents.Update event = new NoteEvents.Update();
+    event.begin();
+    long start = System.nanoTime();
+    try {
+      Note note = notes.get(id);
+      if (note != null) {
+        note.update(newTitle, newText);
+      }
+      NoteEvents.commit(event, "updateNoteText", id, note != null);
+      return note != null;
+    } finally {
+      metrics.record(NoteOperation.UPDATE_NOTE_TEXT, start);
     }
-    note.setTitle(newTitle);
-    note.setText(newText);
-    return true; // Placeholder
   }
 
   /**
@@ -101,15 +477,17 @@ public class NoteService {
    * @return true, если заметка найдена и тег добавлен, иначе false.
    */
   public boolean addTagToNote(int id, String tag) {
-    Note note = notes.get(id);
-    if (note == null) {
-      return false;
-    }
-    if (note.getTags().contains(tag.toLowerCase())) {
-      return false;
+    NoteEvents.Update event = new NoteEvents.Update();
+    event.begin();
+    long start = System.nanoTime();
+    try {
+      Note note = notes.get(id);
+      boolean changed = note != null && note.addTagCode(Note.internTag(tag));
+      NoteEvents.commit(event, "addTagToNote", id, note != null);
+      return changed;
+    } finally {
+      metrics.record(NoteOperation.ADD_TAG_TO_NOTE, start);
     }
-    note.addTag(tag.toLowerCase());
-    return true;
   }
 
   /**
@@ -120,15 +498,17 @@ public class NoteService {
    * @return true, если заметка найдена и тег удален, иначе false.
    */
   public boolean removeTagFromNote(int id, String tag) {
-    Note note = notes.get(id);
-    if (note == null) {
-      return false;
-    }
-    if (!note.getTags().contains(tag.toLowerCase())) {
-      return false;
+    NoteEvents.Update event = new NoteEvents.Update();
+    event.begin();
+    long start = System.nanoTime();
+    try {
+      Note note = notes.get(id);
+      boolean changed = note != null && note.removeTag(tag);
+      NoteEvents.commit(event, "removeTagFromNote", id, note != null);
+      return changed;
+    } finally {
+      metrics.record(NoteOperation.REMOVE_TAG_FROM_NOTE, start);
     }
-    note.removeTag(tag);
-    return true;
   }
 
   /**
@@ -138,69 +518,697 @@ public class NoteService {
    * @return true, если заметка найдена и удалена, иначе false.
    */
   public boolean deleteNote(int id) {
-    Note note = notes.get(id);
+    NoteEvents.Delete event = new NoteEvents.Delete();
+    event.begin();
+    long start = System.nanoTime();
+    try {
+      boolean found = removeNote(id);
+      if (event.shouldCommit()) {
+        event.noteId = id;
+        event.found = found;
+        event.commit();
+      }
+      return found;
+    } finally {
+      metrics.record(NoteOperation.DELETE_NOTE, start);
+    }
+  }
+
+  /**
+   * Возвращает статистику вызовов публичных операций сервиса.
+   *
+   * @return счётчики и гистограммы длительностей операций.
+   */
+  public NoteMetrics metrics() {
+    return metrics;
+  }
+
+  /**
+   * Удаляет заметку. Удаление из хранилища выбирает единственный поток, который её удалит;
+   * индексы очищаются только после записи в журнал, а если запись не удалась, заметка
+   * возвращается в хранилище, как при откате в {@link #addNote}.
+   */
+  private boolean removeNote(int id) {
+    Note note = notes.remove(id);
     if (note == null) {
       return false;
     }
-    notes.remove(id);
+    synchronized (note) {
+      if (log != null) {
+        try {
+          log.logDeleted(id);
+        } catch (RuntimeException e) {
+          notes.put(note);
+          throw e;
+        }
+      }
+      unlink(note);
+    }
     return true;
   }
 
   /**
    * Ищет заметки, содержащие текст (без учета регистра).
    *
+   * <p>Для запросов не короче {@value Trigrams#LENGTH} символов кандидаты сначала отбираются по
+   * индексу триграмм, и подстрока проверяется только у них. Более короткие запросы проверяются
+   * перебором всех заметок. Результат в обоих случаях один и тот же.
+   *
+   * <p>Если проверять нужно не меньше {@link #getParallelScanThreshold()} заметок, перебор
+   * делится между потоками {@link ForkJoinPool#commonPool()} (или пула, из задачи которого
+   * вызван поиск).
+   *
    * @param query Текст для поиска.
    * @return Список найденных заметок.
    */
   public List<Note> findNotesByText(String query) {
-    List<Note> notesList = new ArrayList<>();
-    query = query.toLowerCase();
-    for (Note note : notes.values()) {
-      if (note.getText().toLowerCase().contains(query)) {
-        notesList.add(note);
+    NoteEvents.Search event = new NoteEvents.Search();
+    event.begin();
+    long start = System.nanoTime();
+    try {
+      TextMatcher matcher = new TextMatcher(query);
+      String lowerQuery = matcher.pattern();
+      Predicate<Note> matches = note -> matcher.matches(note.foldedText());
+      if (lowerQuery.length() < Trigrams.LENGTH) {
+        int scanned = notes.size();
+        List<Note> notesList = filter(notes, scanned, matches);
+        NoteEvents.commit(event, "findNotesByText", query, "scan", scanned, notesList.size());
+        return notesList;
+      }
+      List<Note> candidates = toNotes(trigramIndex.findAll(Trigrams.of(lowerQuery)));
+      List<Note> notesList = filter(candidates, candidates.size(), matches);
+      NoteEvents.commit(event, "findNotesByText", query, "trigram", candidates.size(),
+          notesList.size());
+      return notesList;
+    } finally {
+      metrics.record(NoteOperation.FIND_NOTES_BY_TEXT, start);
+    }
+  }
+
+  /**
+   * Постраничный вариант {@link #findNotesByText(String)}: заметки по возрастанию ID.
+   *
+   * <p>Кандидаты перебираются по порядку ID с места курсора — из индекса триграмм или, для
+   * запроса короче триграммы, из хранилища, — и поиск останавливается, как только страница
+   * заполнена. Поэтому первая страница стоит пропорционально её размеру, а не числу заметок.
+   *
+   * @param query  Текст для поиска.
+   * @param limit  Наибольшее число заметок на странице.
+   * @param cursor Курсор из {@link NotePage#nextCursor()} или null для первой страницы.
+   * @return Страница найденных заметок.
+   * @throws IllegalArgumentException если limit не положителен или курсор некорректен.
+   */
+  public NotePage findNotesByText(String query, int limit, String cursor) {
+    NoteEvents.Search event = new NoteEvents.Search();
+    event.begin();
+    long start = System.nanoTime();
+    try {
+      TextMatcher matcher = new TextMatcher(query);
+      String lowerQuery = matcher.pattern();
+      int afterId = NotePage.decodeCursor(cursor);
+      PageBuilder page = new PageBuilder(limit, note -> matcher.matches(note.foldedText()));
+      String index;
+      if (lowerQuery.length() < Trigrams.LENGTH) {
+        index = "scan";
+        notes.forEachInRange(afterId + 1, nextId.get(), page);
+      } else {
+        index = "trigram";
+        trigramIndex.forEachAll(Trigrams.of(lowerQuery), afterId, page::testId);
       }
+      NotePage result = page.build();
+      NoteEvents.commit(event, "findNotesByText", query, index, page.scanned,
+          result.notes().size());
+      return result;
+    } finally {
+      metrics.record(NoteOperation.FIND_NOTES_BY_TEXT, start);
+    }
+  }
+
+  /**
+   * Ищет заметки, текст которых содержит ВСЕ слова запроса (без учета регистра).
+   *
+   * <p>В отличие от {@link #findNotesByText(String)} сравниваются целые слова, а не подстроки:
+   * запрос «java core» найдёт «Core Java», но не «javascript». Поиск идёт по индексу слов и не
+   * просматривает тексты заметок.
+   *
+   * @param query Слова для поиска, разделённые пробелами или знаками препинания.
+   * @return Список найденных заметок в порядке возрастания ID.
+   */
+  public List<Note> findNotesByWords(String query) {
+    NoteEvents.Search event = new NoteEvents.Search();
+    event.begin();
+    long start = System.nanoTime();
+    try {
+      Set<String> terms = TextTokenizer.terms(query);
+      List<Note> found = terms.isEmpty() ? new ArrayList<>() : toNotes(wordIndex.findAll(terms));
+      NoteEvents.commit(event, "findNotesByWords", query, "word", found.size(), found.size());
+      return found;
+    } finally {
+      metrics.record(NoteOperation.FIND_NOTES_BY_WORDS, start);
     }
-    return notesList; // Placeholder
   }
 
   /**
    * Ищет заметки, содержащие ВСЕ указанные теги (без учета регистра).
    *
+   * <p>Пустой набор тегов находит заметки без тегов.
+   *
    * @param searchTags Набор тегов для поиска.
-   * @return Список найденных заметок.
+   * @return Список найденных заметок в порядке возрастания ID.
    */
   public List<Note> findNotesByTags(Set<String> searchTags) {
+    NoteEvents.Search event = new NoteEvents.Search();
+    event.begin();
+    long start = System.nanoTime();
+    try {
+      if (searchTags == null) {
+        return new ArrayList<>();
+      }
+      List<Note> notesList = new ArrayList<>();
+      if (searchTags.isEmpty()) {
+        int scanned = 0;
+        for (Note note : notes) {
+          scanned++;
+          if (note.tagCodes().length == 0) {
+            notesList.add(note);
+          }
+        }
+        NoteEvents.commit(event, "findNotesByTags", searchTags, "scan", scanned,
+            notesList.size());
+        return notesList;
+      }
+      List<Note> found = toNotes(tagIndex.findAll(lookupTags(searchTags)));
+      NoteEvents.commit(event, "findNotesByTags", searchTags, "tag", found.size(), found.size());
+      return found;
+    } finally {
+      metrics.record(NoteOperation.FIND_NOTES_BY_TAGS, start);
+    }
+  }
 
-    if (searchTags == null) {
-      return new ArrayList<>();
-    }
-    List<Note> notesList = new ArrayList<>();
-    searchTags = searchTags.stream()
-        .map(String::toLowerCase)
-        .collect(Collectors.toSet());
-    for (Note note : notes.values()) {
-      if (
-          (searchTags.isEmpty() && note.getTags().isEmpty())
-              || (note.getTags().containsAll(searchTags) && !searchTags.isEmpty())
-      ) {
-        notesList.add(note);
+  /**
+   * Постраничный вариант {@link #findNotesByTags(Set)}: заметки по возрастанию ID.
+   *
+   * <p>Списки тегов обходятся вместе с места курсора, без построения полного пересечения, и
+   * поиск останавливается, как только страница заполнена.
+   *
+   * @param searchTags Набор тегов для поиска; пустой набор находит заметки без тегов.
+   * @param limit      Наибольшее число заметок на странице.
+   * @param cursor     Курсор из {@link NotePage#nextCursor()} или null для первой страницы.
+   * @return Страница найденных заметок.
+   * @throws IllegalArgumentException если limit не положителен или курсор некорректен.
+   */
+  public NotePage findNotesByTags(Set<String> searchTags, int limit, String cursor) {
+    NoteEvents.Search event = new NoteEvents.Search();
+    event.begin();
+    long start = System.nanoTime();
+    try {
+      int afterId = NotePage.decodeCursor(cursor);
+      if (searchTags == null) {
+        return new PageBuilder(limit, note -> false).build();
       }
+      PageBuilder page;
+      String index;
+      if (searchTags.isEmpty()) {
+        index = "scan";
+        page = new PageBuilder(limit, note -> note.tagCodes().length == 0);
+        notes.forEachInRange(afterId + 1, nextId.get(), page);
+      } else {
+        index = "tag";
+        page = new PageBuilder(limit, note -> true);
+        tagIndex.forEachAll(lookupTags(searchTags), afterId, page::testId);
+      }
+      NotePage result = page.build();
+      NoteEvents.commit(event, "findNotesByTags", searchTags, index, page.scanned,
+          result.notes().size());
+      return result;
+    } finally {
+      metrics.record(NoteOperation.FIND_NOTES_BY_TAGS, start);
+    }
+  }
+
+  /**
+   * Ищет заметки, содержащие ВСЕ теги {@code requiredTags} и НИ ОДНОГО из {@code excludedTags}
+   * (без учета регистра).
+   *
+   * @param requiredTags Обязательные теги (непустой набор).
+   * @param excludedTags Запрещённые теги (может быть null или пустым).
+   * @return Список найденных заметок в порядке возрастания ID.
+   */
+  public List<Note> findNotesByTags(Set<String> requiredTags, Set<String> excludedTags) {
+    NoteEvents.Search event = new NoteEvents.Search();
+    event.begin();
+    long start = System.nanoTime();
+    try {
+      if (requiredTags == null || requiredTags.isEmpty()) {
+        return new ArrayList<>();
+      }
+      IdBitmap ids = tagIndex.findAll(lookupTags(requiredTags));
+      if (excludedTags != null) {
+        ids = tagIndex.exclude(ids, lookupTags(excludedTags));
+      }
+      List<Note> found = toNotes(ids);
+      if (event.shouldCommit()) {
+        NoteEvents.commit(event, "findNotesByTags", requiredTags + " -" + excludedTags, "tag",
+            found.size(), found.size());
+      }
+      return found;
+    } finally {
+      metrics.record(NoteOperation.FIND_NOTES_BY_TAGS, start);
+    }
+  }
+
+  /**
+   * Ищет заметки, содержащие ХОТЯ БЫ ОДИН из указанных тегов (без учета регистра).
+   *
+   * @param searchTags Набор тегов для поиска (может быть null).
+   * @return Список найденных заметок в порядке возрастания ID.
+   */
+  public List<Note> findNotesByAnyTag(Set<String> searchTags) {
+    NoteEvents.Search event = new NoteEvents.Search();
+    event.begin();
+    long start = System.nanoTime();
+    try {
+      if (searchTags == null) {
+        return new ArrayList<>();
+      }
+      List<Note> found = toNotes(tagIndex.findAny(lookupTags(searchTags)));
+      NoteEvents.commit(event, "findNotesByAnyTag", searchTags, "tag", found.size(),
+          found.size());
+      return found;
+    } finally {
+      metrics.record(NoteOperation.FIND_NOTES_BY_ANY_TAG, start);
     }
-    return notesList;
   }
 
   /**
    * Получает список всех уникальных тегов из всех заметок.
    *
+   * <p>Теги берутся из индекса тегов, поэтому стоимость пропорциональна числу различных тегов,
+   * а не числу заметок.
+   *
    * @return Список уникальных тегов (в нижнем регистре).
    */
   public Set<String> getAllTags() {
-    Set<String> tags = new HashSet<>();
-    for (Note note : notes.values()) {
-      tags.addAll(note.getTags());
+    long start = System.nanoTime();
+    try {
+      Set<String> tags = new HashSet<>();
+      for (int tagCode : tagIndex.keys()) {
+        tags.add(TagDictionary.GLOBAL.tag(tagCode));
+      }
+      return tags;
+    } finally {
+      metrics.record(NoteOperation.GET_ALL_TAGS, start);
     }
-    // Пройти по всем заметкам, собрать все теги в один Set.
-    return tags;
   }
 
-}
\ No newline at end of file
+  /**
+   * Получает число заметок, отмеченных каждым тегом.
+   *
+   * @return Словарь «тег (в нижнем регистре) → число заметок с этим тегом».
+   */
+  public Map<String, Integer> getTagCounts() {
+    long start = System.nanoTime();
+    try {
+      Map<String, Integer> counts = new HashMap<>();
+      tagIndex.counts().forEach(
+          (tagCode, count) -> counts.put(TagDictionary.GLOBAL.tag(tagCode), count));
+      return counts;
+    } finally {
+      metrics.record(NoteOperation.GET_TAG_COUNTS, start);
+    }
+  }
+
+  /**
+   * Освобождает память, оставшуюся от удалённых заметок, если хранилище это поддерживает
+   * (см. {@link StorageType#CHUNKED_ARRAY}), и переводит списки заметок в индексах в самое
+   * компактное представление.
+   */
+  public void compactStorage() {
+    long start = System.nanoTime();
+    try {
+      notes.compact();
+      tagIndex.compact();
+      wordIndex.compact();
+      trigramIndex.compact();
+    } finally {
+      metrics.record(NoteOperation.COMPACT_STORAGE, start);
+    }
+  }
+
+  /**
+   * Сохраняет снимок всех заметок, чтобы следующее открытие не проигрывало журнал с начала.
+   *
+   * <p>Изменения во время снимка не блокируются: всё, что в снимок не попало, восстановится из
+   * журнала после позиции, сохранённой в снимке. Когда снимок записан, начало журнала до этой
+   * позиции отрезается ({@link NoteLog#truncate(long)}), поэтому журнал хранит только изменения
+   * после последнего снимка.
+   *
+   * @throws IOException           если снимок не удалось записать.
+   * @throws IllegalStateException если сервис создан без каталога данных.
+   */
+  public void snapshot() throws IOException {
+    long start = System.nanoTime();
+    try {
+      if (log == null) {
+        throw new IllegalStateException("Snapshots require a service opened with NoteService.open");
+      }
+      synchronized (snapshotLock) {
+        // Позиция берётся раньше счётчика id и обхода заметок: всё, что записано до неё, уже видно.
+        long logPosition;
+        publishLock.writeLock().lock();
+        try {
+          logPosition = log.position();
+        } finally {
+          publishLock.writeLock().unlock();
+        }
+        log.sync();
+        NoteSnapshot.Header header = new NoteSnapshot.Header(logPosition, nextId.get(), null);
+        NoteSnapshot.write(directory.resolve(SNAPSHOT_FILE), header, notes, log::tags);
+        log.truncate(logPosition);
+      }
+    } finally {
+      metrics.record(NoteOperation.SNAPSHOT, start);
+    }
+  }
+
+  /**
+   * Закрывает журнал изменений, предварительно сбросив его на диск, и останавливает
+   * периодические снимки. Для сервиса в памяти ничего не делает.
+   *
+   * @throws UncheckedIOException если журнал не удалось сбросить или закрыть.
+   */
+  @Override
+  public void close() {
+    if (snapshotter != null) {
+      snapshotter.shutdown();
+    }
+    if (log != null) {
+      synchronized (snapshotLock) {
+        try {
+          log.close();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+    }
+  }
+
+  private void snapshotQuietly() {
+    try {
+      snapshot();
+    } catch (IOException | RuntimeException e) {
+      // Журнал по-прежнему содержит все изменения; следующая попытка запишет свежий снимок.
+    }
+  }
+
+  /**
+   * Отключает заметку от сервиса и убирает её из индексов. Вызывается под монитором заметки.
+   */
+  private void unlink(Note note) {
+    int id = note.getId();
+    note.setListener(null);
+    for (int tagCode : note.tagCodes()) {
+      tagIndex.remove(tagCode, id);
+    }
+    reindex(wordIndex, id, TextTokenizer.terms(note.getText()), Set.of());
+    reindex(trigramIndex, id, Trigrams.of(note.foldedText()), Set.of());
+  }
+
+  /**
+   * Индексирует новые заметки: ключи всего пакета сначала собираются в списки, и каждый индекс
+   * обновляется одним изменением на ключ.
+   */
+  private void indexAll(List<Note> batch) {
+    Map<Integer, IdBitmap> tags = new HashMap<>();
+    Map<String, IdBitmap> words = new HashMap<>();
+    Map<Long, IdBitmap> trigrams = new HashMap<>();
+    for (Note note : batch) {
+      int id = note.getId();
+      for (int tagCode : note.tagCodes()) {
+        tags.computeIfAbsent(tagCode, k -> new IdBitmap()).add(id);
+      }
+      for (String term : TextTokenizer.terms(note.getText())) {
+        words.computeIfAbsent(term, k -> new IdBitmap()).add(id);
+      }
+      for (Long trigram : Trigrams.of(note.foldedText())) {
+        trigrams.computeIfAbsent(trigram, k -> new IdBitmap()).add(id);
+      }
+    }
+    tagIndex.addAll(tags);
+    wordIndex.addAll(words);
+    trigramIndex.addAll(trigrams);
+  }
+
+  /**
+   * Подключает наблюдателя к проиндексированным заметкам и кладёт их в хранилище.
+   */
+  private void publishAll(List<Note> batch) {
+    for (Note note : batch) {
+      note.setListener(changeTracker);
+    }
+    notes.putAll(batch);
+  }
+
+  /**
+   * Индексирует новую заметку, подключает к ней наблюдателя и кладёт в хранилище.
+   */
+  private void insert(Note note) {
+    int id = note.getId();
+    for (int tagCode : note.tagCodes()) {
+      tagIndex.add(tagCode, id);
+    }
+    reindex(wordIndex, id, Set.of(), TextTokenizer.terms(note.getText()));
+    reindex(trigramIndex, id, Set.of(), Trigrams.of(note.foldedText()));
+    note.setListener(changeTracker);
+    notes.put(note);
+  }
+
+  /**
+   * Отбирает заметки, подходящие под условие: в вызывающем потоке или, начиная с порога
+   * {@link #parallelScanThreshold}, параллельным потоком по разделителю источника. Хранилища
+   * делятся без копирования (см. {@link NoteStore#spliterator()}), а перебор в нескольких потоках
+   * безопасен и для однопоточного сервиса, потому что вызывающий поток ждёт его окончания.
+   */
+  private List<Note> filter(Iterable<Note> source, int size, Predicate<Note> condition) {
+    if (size < parallelScanThreshold) {
+      List<Note> found = new ArrayList<>();
+      for (Note note : source) {
+        if (condition.test(note)) {
+          found.add(note);
+        }
+      }
+      return found;
+    }
+    return StreamSupport.stream(source.spliterator(), true).filter(condition)
+        .collect(Collectors.toCollection(ArrayList::new));
+  }
+
+  private List<Note> toNotes(IdBitmap ids) {
+    List<Note> notesList = new ArrayList<>(ids.cardinality());
+    ids.forEach(id -> {
+      Note note = notes.get(id);
+      if (note != null) {
+        notesList.add(note);
+      }
+    });
+    return notesList;
+  }
+
+  /**
+   * Переводит теги в коды словаря. Незнакомый тег получает код {@link TagDictionary#ABSENT},
+   * которого нет в индексе: для И он даёт пустой результат, а для ИЛИ и НЕ не влияет ни на что.
+   */
+  private static Set<Integer> lookupTags(Set<String> tags) {
+    Set<Integer> tagCodes = new HashSet<>();
+    for (String tag : tags) {
+      tagCodes.add(TagDictionary.GLOBAL.lookup(TagDictionary.normalize(tag)));
+    }
+    return tagCodes;
+  }
+
+  /**
+   * Переводит заметку в индексе из набора ключей {@code oldKeys} в набор {@code newKeys},
+   * трогая только различающиеся ключи.
+   */
+  private static <K> void reindex(InvertedIndex<K> index, int id, Set<K> oldKeys, Set<K> newKeys) {
+    for (K key : oldKeys) {
+      if (!newKeys.contains(key)) {
+        index.remove(key, id);
+      }
+    }
+    for (K key : newKeys) {
+      if (!oldKeys.contains(key)) {
+        index.add(key, id);
+      }
+    }
+  }
+
+  /**
+   * Собирает страницу из заметок, которые обход выдаёт по возрастанию ID. Принимает на одну
+   * подходящую заметку больше лимита: она не попадает на страницу, но показывает, что следующая
+   * страница есть, и сразу останавливает обход.
+   */
+  private final class PageBuilder implements Predicate<Note> {
+
+    private final int limit;
+
+    private final Predicate<Note> filter;
+
+    private final List<Note> page = new ArrayList<>();
+
+    private boolean more;
+
+    /** Сколько заметок просмотрено, включая не прошедшие фильтр. */
+    int scanned;
+
+    PageBuilder(int limit, Predicate<Note> filter) {
+      if (limit <= 0) {
+        throw new IllegalArgumentException("Page limit must be positive: " + limit);
+      }
+      this.limit = limit;
+      this.filter = filter;
+    }
+
+    @Override
+    public boolean test(Note note) {
+      scanned++;
+      if (!filter.test(note)) {
+        return true;
+      }
+      if (page.size() == limit) {
+        more = true;
+        return false;
+      }
+      page.add(note);
+      return true;
+    }
+
+    /** То же для идентификатора из индекса; заметки, удалённые после индексации, пропускаются. */
+    boolean testId(int id) {
+      Note note = notes.get(id);
+      return note == null || test(note);
+    }
+
+    NotePage build() {
+      String cursor = more ? NotePage.encodeCursor(page.getLast().getId()) : null;
+      return new NotePage(Collections.unmodifiableList(page), cursor);
+    }
+  }
+
+  /**
+   * Поддерживает индексы в актуальном состоянии и записывает изменения заметок в журнал.
+   *
+   * <p>Запись в журнал идёт первой: если она не удалась, индексы ещё не тронуты, а заметка по
+   * исключению возвращает прежнее значение, как {@link #addNote} и {@link #deleteNote} откатывают
+   * свои изменения.
+   */
+  private final class ChangeTracker implements NoteListener {
+
+    @Override
+    public void titleChanged(Note note, String oldTitle) {
+      if (log != null) {
+        log.logTitleChanged(note.getId(), note.getTitle());
+      }
+    }
+
+    @Override
+    public void textChanged(Note note, String oldText) {
+      if (log != null) {
+        log.logTextChanged(note.getId(), note.getText());
+      }
+      reindexText(note, oldText);
+    }
+
+    @Override
+    public void contentChanged(Note note, String oldTitle, String oldText) {
+      if (log != null) {
+        log.logUpdated(note.getId(), note.getTitle(), note.getText());
+      }
+      if (!oldText.equals(note.getText())) {
+        reindexText(note, oldText);
+      }
+    }
+
+    @Override
+    public void tagAdded(Note note, int tagCode) {
+      if (log != null) {
+        log.logTagAdded(note.getId(), tagCode);
+      }
+      tagIndex.add(tagCode, note.getId());
+    }
+
+    @Override
+    public void tagRemoved(Note note, int tagCode) {
+      if (log != null) {
+        log.logTagRemoved(note.getId(), tagCode);
+      }
+      tagIndex.remove(tagCode, note.getId());
+    }
+
+    private void reindexText(Note note, String oldText) {
+      reindex(wordIndex, note.getId(), TextTokenizer.terms(oldText),
+          TextTokenizer.terms(note.getText()));
+      reindex(trigramIndex, note.getId(),
+          Trigrams.of(TextTokenizer.fold(oldText)), Trigrams.of(note.foldedText()));
+    }
+  }
+
+  /**
+   * Восстанавливает состояние сервиса по записям журнала. Пока журнал проигрывается, сервис ещё
+   * не подключён к нему, поэтому повторно изменения не записываются.
+   */
+  private final class LogReplayer implements NoteLog.Replayer {
+
+    @Override
+    public void added(Note note) {
+      removeNote(note.getId());
+      insert(note);
+      nextId.accumulateAndGet(note.getId() + 1, Math::max);
+    }
+
+    @Override
+    public void titleChanged(int id, String title) {
+      Note note = notes.get(id);
+      if (note != null) {
+        note.setTitle(title);
+      }
+    }
+
+    @Override
+    public void textChanged(int id, String text) {
+      Note note = notes.get(id);
+      if (note != null) {
+        note.setText(text);
+      }
+    }
+
+    @Override
+    public void updated(int id, String title, String text) {
+      Note note = notes.get(id);
+      if (note != null) {
+        note.update(title, text);
+      }
+    }
+
+    @Override
+    public void tagAdded(int id, int tagCode) {
+      Note note = notes.get(id);
+      if (note != null) {
+        note.addTagCode(tagCode);
+      }
+    }
+
+    @Override
+    public void tagRemoved(int id, int tagCode) {
+      Note note = notes.get(id);
+      if (note != null) {
+        note.removeTagCode(tagCode);
+      }
+    }
+
+    @Override
+    public void deleted(int id) {
+      removeNote(id);
+    }
+  }
+}
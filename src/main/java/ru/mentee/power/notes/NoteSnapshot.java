@@ -0,0 +1,297 @@
+package ru.mentee.power.notes;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Supplier;
+import java.util.zip.CRC32C;
+
+/**
+ * Снимок всех заметок сервиса в двоичном файле.
+ *
+ * <p>Формат файла:
+ * <pre>
+ *   заголовок: int MAGIC | int VERSION | long позиция журнала | int nextId | int число заметок
+ *              | long смещение словаря тегов | long длина тела | int CRC32C тела
+ *   тело:      для каждой заметки varint длина | заметка в формате {@link NoteCodec}
+ *              затем словарь тегов: varint число кодов | строки тегов по порядку кодов
+ * </pre>
+ * Заметки записывают теги кодами словаря журнала {@link NoteLog}, а сам словарь сохраняется в
+ * конце тела: при восстановлении он и декодирует заметки, и продолжает словарь журнала с позиции
+ * снимка.
+ *
+ * <p>Файл пишется и читается через {@link MappedByteBuffer} окнами по {@link #WINDOW_BYTES}: запись
+ * и чтение — это копирование в память без системного вызова на каждую заметку, а размер снимка не
+ * ограничен размером одного отображения. Снимок сначала пишется во временный файл, сбрасывается
+ * на диск и только потом атомарно переименовывается, поэтому на диске всегда лежит либо прежний,
+ * либо новый целый снимок.
+ *
+ * <p>Снимок хранит позицию журнала {@link NoteLog}, до которой он отражает все изменения. При
+ * восстановлении загружается снимок, а журнал проигрывается только с этой позиции.
+ */
+final class NoteSnapshot {
+
+  /** Окно отображения файла в память. */
+  static final int WINDOW_BYTES = 64 * 1024 * 1024;
+
+  private static final int MAGIC = 0x4E534E50;
+
+  /** Версия файла; покрывает и формат заметок {@link NoteCodec}. */
+  private static final int VERSION = 2;
+
+  private static final int HEADER_BYTES = 4 * Integer.BYTES + 3 * Long.BYTES + Integer.BYTES;
+
+  private NoteSnapshot() {
+  }
+
+  /**
+   * Состояние сервиса, не относящееся к отдельным заметкам.
+   *
+   * @param logPosition позиция журнала, с которой нужно продолжить проигрывание
+   * @param nextId      следующий свободный идентификатор
+   * @param tags        словарь тегов журнала (при записи снимка не используется)
+   */
+  record Header(long logPosition, int nextId, NoteCodec.TagTable tags) {
+  }
+
+  /**
+   * Записывает снимок заметок.
+   *
+   * <p>Заметки могут изменяться во время записи: каждая читается под своим монитором, а
+   * изменения, не попавшие в снимок, восстанавливаются из журнала после {@code header}.
+   *
+   * @param file   файл снимка; заменяется атомарно
+   * @param header позиция журнала и счётчик идентификаторов на момент начала снимка
+   * @param notes  заметки
+   * @param tags   источник актуальной копии словаря тегов журнала; вызывается в начале и
+   *               повторно, если у заметки встретился тег, которого ещё нет в копии
+   * @throws IOException если снимок не удалось записать
+   */
+  static void write(Path file, Header header, Iterable<Note> notes,
+      Supplier<NoteCodec.TagTable> tags) throws IOException {
+    Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+        StandardOpenOption.WRITE)) {
+      Writer writer = new Writer(channel);
+      NoteCodec.TagTable table = tags.get();
+      int count = 0;
+      for (Note note : notes) {
+        synchronized (note) {
+          for (int tagCode : note.tagCodes()) {
+            if (table.local(tagCode) < 0) {
+              // Тег появился после копирования словаря; в журнале он уже определён.
+              table = tags.get();
+            }
+          }
+          int size = NoteCodec.encodedSize(note, table);
+          ByteBuffer buffer = writer.reserve(NoteCodec.varintSize(size) + size);
+          NoteCodec.putVarint(buffer, size);
+          NoteCodec.encode(buffer, note, table);
+        }
+        count++;
+      }
+      long tableOffset = writer.position();
+      int tableSize = NoteCodec.varintSize(table.size());
+      for (int i = 0; i < table.size(); i++) {
+        tableSize += NoteCodec.stringSize(TagDictionary.GLOBAL.tag(table.global(i)));
+      }
+      ByteBuffer buffer = writer.reserve(tableSize);
+      NoteCodec.putVarint(buffer, table.size());
+      for (int i = 0; i < table.size(); i++) {
+        NoteCodec.putString(buffer, TagDictionary.GLOBAL.tag(table.global(i)));
+      }
+      long bodyLength = writer.finish();
+
+      MappedByteBuffer head = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+      head.putInt(MAGIC).putInt(VERSION).putLong(header.logPosition()).putInt(header.nextId())
+          .putInt(count).putLong(tableOffset).putLong(bodyLength).putInt(writer.checksum());
+      head.force();
+      channel.truncate(HEADER_BYTES + bodyLength);
+      channel.force(true);
+    }
+    Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /**
+   * Загружает снимок, если он есть и цел.
+   *
+   * <p>Сначала проверяется контрольная сумма всего тела, и только потом заметки передаются
+   * получателю, поэтому повреждённый снимок не оставляет сервис в частично загруженном состоянии.
+   *
+   * @param file     файл снимка
+   * @param replayer получатель заметок (вызывается {@link NoteLog.Replayer#added})
+   * @return заголовок снимка со словарём тегов журнала или {@code null}, если снимка нет, он
+   *         повреждён или записан в другом формате
+   * @throws IOException если файл не удалось прочитать
+   */
+  static Header read(Path file, NoteLog.Replayer replayer) throws IOException {
+    if (!Files.exists(file)) {
+      return null;
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      if (channel.size() < HEADER_BYTES) {
+        return null;
+      }
+      ByteBuffer head = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+      if (head.getInt() != MAGIC || head.getInt() != VERSION) {
+        return null;
+      }
+      long logPosition = head.getLong();
+      int nextId = head.getInt();
+      int count = head.getInt();
+      long tableOffset = head.getLong();
+      long bodyLength = head.getLong();
+      int checksum = head.getInt();
+      if (channel.size() != HEADER_BYTES + bodyLength || tableOffset > bodyLength
+          || checksum(channel, bodyLength) != checksum) {
+        return null;
+      }
+      try {
+        NoteCodec codec = new NoteCodec();
+        NoteCodec.TagTable tags = new NoteCodec.TagTable();
+        ByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + tableOffset,
+            bodyLength - tableOffset);
+        int tagCount = NoteCodec.getVarint(table);
+        for (int i = 0; i < tagCount; i++) {
+          tags.put(i, Note.internTag(codec.getString(table)));
+        }
+        Reader reader = new Reader(channel, tableOffset);
+        for (int i = 0; i < count; i++) {
+          replayer.added(codec.decode(reader.next(), tags));
+        }
+        return new Header(logPosition, nextId, tags);
+      } catch (IllegalArgumentException | BufferUnderflowException e) {
+        throw new IOException("Malformed note snapshot " + file, e);
+      }
+    }
+  }
+
+  private static int checksum(FileChannel channel, long bodyLength) throws IOException {
+    CRC32C crc = new CRC32C();
+    for (long position = 0; position < bodyLength; position += WINDOW_BYTES) {
+      long size = Math.min(WINDOW_BYTES, bodyLength - position);
+      crc.update(channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + position, size));
+    }
+    return (int) crc.getValue();
+  }
+
+  /**
+   * Последовательная запись тела снимка через окна отображения.
+   */
+  private static final class Writer {
+
+    private final FileChannel channel;
+
+    private final CRC32C crc = new CRC32C();
+
+    /** Позиция начала текущего окна относительно начала тела. */
+    private long windowStart;
+
+    private MappedByteBuffer window;
+
+    /** Начало данных окна, ещё не учтённых в контрольной сумме. */
+    private int unchecked;
+
+    Writer(FileChannel channel) {
+      this.channel = channel;
+    }
+
+    /**
+     * Возвращает окно, в котором свободно не меньше {@code bytes} байт.
+     */
+    ByteBuffer reserve(int bytes) throws IOException {
+      if (window == null || window.remaining() < bytes) {
+        if (window != null) {
+          flush();
+          windowStart += window.position();
+        }
+        window = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES + windowStart,
+            Math.max(WINDOW_BYTES, bytes));
+        unchecked = 0;
+      }
+      return window;
+    }
+
+    /**
+     * Возвращает текущую позицию относительно начала тела.
+     */
+    long position() {
+      return window == null ? 0 : windowStart + window.position();
+    }
+
+    /**
+     * Завершает запись тела.
+     *
+     * @return длина тела в байтах
+     */
+    long finish() {
+      if (window == null) {
+        return 0;
+      }
+      flush();
+      return position();
+    }
+
+    int checksum() {
+      return (int) crc.getValue();
+    }
+
+    private void flush() {
+      crc.update(window.slice(unchecked, window.position() - unchecked));
+      unchecked = window.position();
+      window.force();
+    }
+  }
+
+  /**
+   * Последовательное чтение заметок из тела снимка через окна отображения.
+   */
+  private static final class Reader {
+
+    private final FileChannel channel;
+
+    /** Конец области заметок относительно начала тела. */
+    private final long end;
+
+    private long windowStart;
+
+    private MappedByteBuffer window;
+
+    Reader(FileChannel channel, long end) {
+      this.channel = channel;
+      this.end = end;
+    }
+
+    /**
+     * Возвращает буфер, позиция которого стоит на следующей заметке, а сама заметка лежит в нём
+     * целиком.
+     */
+    ByteBuffer next() throws IOException {
+      require(Integer.BYTES + 1);
+      int start = window.position();
+      int length = NoteCodec.getVarint(window);
+      int prefix = window.position() - start;
+      window.position(start);
+      require(prefix + length);
+      window.position(window.position() + prefix);
+      return window;
+    }
+
+    private void require(int bytes) throws IOException {
+      if (window == null || window.remaining() < bytes) {
+        if (window != null) {
+          windowStart += window.position();
+        }
+        long size = Math.min(Math.max(WINDOW_BYTES, bytes), end - windowStart);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + windowStart, size);
+      }
+    }
+  }
+}
@@ -0,0 +1,96 @@
+package ru.mentee.power.notes;
+
+import java.util.Collection;
+import java.util.Spliterator;
+import java.util.function.Predicate;
+
+/**
+ * Хранилище заметок сервиса, адресуемое идентификатором заметки.
+ *
+ * <p>Внутренняя абстракция {@link NoteService}: позволяет подменять структуру данных, в которой
+ * лежат заметки, не меняя логики сервиса и индексов. Реализации не обязаны быть потокобезопасными
+ * — для конкурентного режима сервис выбирает подходящую реализацию сам.
+ */
+interface NoteStore extends Iterable<Note> {
+
+  /**
+   * Возвращает заметку по идентификатору.
+   *
+   * @param id идентификатор заметки
+   * @return заметка или {@code null}, если её нет
+   */
+  Note get(int id);
+
+  /**
+   * Сохраняет заметку под её идентификатором, заменяя прежнюю.
+   *
+   * @param note заметка
+   */
+  void put(Note note);
+
+  /**
+   * Сохраняет несколько заметок. Реализации могут заранее выделить место под все заметки и
+   * взять блокировку один раз.
+   *
+   * @param notes заметки
+   */
+  default void putAll(Collection<Note> notes) {
+    for (Note note : notes) {
+      put(note);
+    }
+  }
+
+  /**
+   * Удаляет заметку.
+   *
+   * @param id идентификатор заметки
+   * @return удалённая заметка или {@code null}, если её не было
+   */
+  Note remove(int id);
+
+  /**
+   * Возвращает число заметок в хранилище.
+   *
+   * @return число заметок
+   */
+  int size();
+
+  /**
+   * Передаёт заметки с идентификаторами из {@code [fromId, toId)} по возрастанию id, пока
+   * {@code visitor} возвращает {@code true}.
+   *
+   * <p>По умолчанию идентификаторы диапазона проверяются по одному через {@link #get(int)}:
+   * {@link NoteService} выдаёт их подряд, поэтому пропусков немного, а обход можно остановить,
+   * не просматривая остальное хранилище.
+   *
+   * @param fromId  первый идентификатор включительно
+   * @param toId    граница диапазона, не включается
+   * @param visitor получает заметку и возвращает {@code false}, чтобы остановить обход
+   */
+  default void forEachInRange(int fromId, int toId, Predicate<Note> visitor) {
+    for (int id = fromId; id < toId; id++) {
+      Note note = get(id);
+      if (note != null && !visitor.test(note)) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Возвращает разделитель для обхода заметок без копирования, в том числе параллельного.
+   *
+   * <p>В потокобезопасных реализациях обход слабо согласован, как у
+   * {@link java.util.concurrent.ConcurrentHashMap}: он не блокирует запись, каждую заметку выдаёт
+   * не больше одного раза и видит все заметки, которые были в хранилище всё время обхода.
+   *
+   * @return разделитель по заметкам хранилища
+   */
+  @Override
+  Spliterator<Note> spliterator();
+
+  /**
+   * Освобождает неиспользуемую память, если реализация это умеет.
+   */
+  default void compact() {
+  }
+}
@@ -0,0 +1,27 @@
+package ru.mentee.power.notes;
+
+/**
+ * Способ хранения заметок внутри {@link NoteService}.
+ */
+public enum StorageType {
+
+  /**
+   * Стандартный {@link java.util.HashMap} (или {@link java.util.concurrent.ConcurrentHashMap} в
+   * конкурентном режиме). Вариант по умолчанию.
+   */
+  HASH_MAP,
+
+  /**
+   * Хеш-таблица с открытой адресацией по примитивным {@code int}-ключам: без упаковки
+   * идентификаторов и без объекта-узла на каждую заметку. В конкурентном режиме запись
+   * сериализуется, а чтение по идентификатору остаётся оптимистичным и не блокируется.
+   */
+  PRIMITIVE_MAP,
+
+  /**
+   * Массив, разбитый на блоки и индексируемый идентификатором напрямую. Использует то, что
+   * идентификаторы выдаются подряд: поиск без хеширования, обход в порядке id, полностью
+   * удалённые блоки освобождаются. Чтение не блокируется и в конкурентном режиме.
+   */
+  CHUNKED_ARRAY
+}
@@ -0,0 +1,90 @@
+package ru.mentee.power.notes;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Словарь тегов: каждому различному тегу один раз присваивается целочисленный код.
+ *
+ * <p>Заметки и индексы хранят и сравнивают коды, а строка тега существует в памяти в единственном
+ * экземпляре. Словарь общий для всех заметок процесса ({@link #GLOBAL}) и только растёт: код тега
+ * не меняется, даже если тег больше ни у одной заметки не используется.
+ *
+ * <p>Класс потокобезопасен; поиск кода по строке и строки по коду не блокируются.
+ */
+final class TagDictionary {
+
+  /** Общий словарь, которым пользуются все заметки. */
+  static final TagDictionary GLOBAL = new TagDictionary();
+
+  /** Код, возвращаемый {@link #lookup(String)} для неизвестного тега. */
+  static final int ABSENT = -1;
+
+  private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+
+  /** Строки тегов по кодам; заменяется целиком при росте. */
+  private volatile String[] tags = new String[64];
+
+  /** Число выданных кодов; изменяется под монитором словаря. */
+  private int size;
+
+  /**
+   * Приводит тег к нижнему регистру теми же правилами, что и текст при поиске
+   * ({@link TextTokenizer#fold(String)}), не создавая новую строку, если он уже в нижнем регистре.
+   *
+   * @param tag тег
+   * @return тег в нижнем регистре
+   */
+  static String normalize(String tag) {
+    return TextTokenizer.fold(tag);
+  }
+
+  /**
+   * Возвращает код тега, при необходимости присваивая новый.
+   *
+   * @param tag тег в нижнем регистре
+   * @return код тега
+   */
+  int intern(String tag) {
+    Integer code = codes.get(tag);
+    if (code != null) {
+      return code;
+    }
+    synchronized (this) {
+      code = codes.get(tag);
+      if (code != null) {
+        return code;
+      }
+      int next = size;
+      if (next == tags.length) {
+        tags = Arrays.copyOf(tags, next * 2);
+      }
+      tags[next] = tag;
+      size = next + 1;
+      codes.put(tag, next);
+      return next;
+    }
+  }
+
+  /**
+   * Возвращает код тега, не добавляя тег в словарь.
+   *
+   * @param tag тег в нижнем регистре
+   * @return код тега или {@link #ABSENT}, если такого тега ещё не было
+   */
+  int lookup(String tag) {
+    Integer code = codes.get(tag);
+    return code != null ? code : ABSENT;
+  }
+
+  /**
+   * Возвращает тег по коду.
+   *
+   * @param code код, ранее выданный {@link #intern(String)}
+   * @return тег в нижнем регистре
+   */
+  String tag(int code) {
+    return tags[code];
+  }
+}
@@ -0,0 +1,129 @@
+package ru.mentee.power.notes;
+
+import java.util.Arrays;
+
+/**
+ * Поиск подстроки без учёта регистра, подготовленный один раз на запрос и применяемый ко всем
+ * проверяемым заметкам.
+ *
+ * <p>Запрос приводится к нижнему регистру при создании, а сравнивается с уже приведённым текстом
+ * заметки ({@link Note#foldedText()}), поэтому проверка не создаёт строк. Для запросов от
+ * {@value #MIN_SKIP_LENGTH} символов используется алгоритм Бойера — Мура — Хорспула: окно запроса
+ * сравнивается с текстом с конца, а при несовпадении сдвигается сразу на расстояние от последнего
+ * символа окна до его последнего вхождения в запрос, так что длинный запрос просматривает лишь
+ * часть символов текста. Короткие запросы ищутся {@link String#indexOf(String)}: там сдвиги малы,
+ * и векторизованный поиск первого символа в JDK быстрее.
+ *
+ * <p>Если JVM запущена с {@code --add-modules jdk.incubator.vector}, длинные запросы вместо
+ * таблицы сдвигов ищет {@link VectorTextScanner}: он отбирает кандидатов по первому и последнему
+ * символу запроса сразу для целого регистра. Без модуля поиск остаётся скалярным.
+ *
+ * <p>Экземпляр неизменяем, и его можно использовать из нескольких потоков одновременно.
+ */
+final class TextMatcher {
+
+  /** Наименьшая длина запроса, для которой используется таблица сдвигов. */
+  static final int MIN_SKIP_LENGTH = 8;
+
+  /**
+   * Размер таблицы сдвигов. Символы с одинаковым младшим байтом делят ячейку, и в ней хранится
+   * наименьший из их сдвигов: это лишь укорачивает некоторые сдвиги, но никогда не пропускает
+   * вхождение.
+   */
+  private static final int TABLE_SIZE = 256;
+
+  /**
+   * Подключён ли Vector API к загрузочному слою. Проверяется здесь, а не в
+   * {@link VectorTextScanner}: без модуля тот класс нельзя даже загрузить.
+   */
+  private static final boolean VECTOR_AVAILABLE =
+      ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+  private final String pattern;
+
+  /** Сдвиги по младшему байту символа; {@code null} для коротких запросов. */
+  private final int[] shifts;
+
+  /** Векторный поиск длинного запроса; {@code null}, если Vector API не подключён. */
+  private final VectorTextScanner scanner;
+
+  /**
+   * Подготавливает запрос.
+   *
+   * @param query искомый текст в любом регистре
+   */
+  TextMatcher(String query) {
+    this(query, true);
+  }
+
+  /**
+   * Подготавливает запрос, позволяя запретить векторный поиск (например, чтобы тесты проверяли
+   * скалярный путь и при подключённом Vector API).
+   *
+   * @param query     искомый текст в любом регистре
+   * @param vectorize использовать ли {@link VectorTextScanner}, если модуль подключён
+   */
+  TextMatcher(String query, boolean vectorize) {
+    this.pattern = TextTokenizer.fold(query);
+    int length = pattern.length();
+    if (length < MIN_SKIP_LENGTH) {
+      this.shifts = null;
+      this.scanner = null;
+      return;
+    }
+    if (vectorize && VECTOR_AVAILABLE) {
+      this.shifts = null;
+      this.scanner = new VectorTextScanner(pattern);
+      return;
+    }
+    this.scanner = null;
+    this.shifts = new int[TABLE_SIZE];
+    Arrays.fill(shifts, length);
+    for (int i = 0; i < length - 1; i++) {
+      shifts[pattern.charAt(i) & (TABLE_SIZE - 1)] = length - 1 - i;
+    }
+  }
+
+  /**
+   * Проверяет, используется ли для запроса векторный поиск.
+   *
+   * @return {@code true}, если длинный запрос ищет {@link VectorTextScanner}
+   */
+  boolean isVectorized() {
+    return scanner != null;
+  }
+
+  /**
+   * Возвращает запрос в нижнем регистре.
+   *
+   * @return приведённый запрос
+   */
+  String pattern() {
+    return pattern;
+  }
+
+  /**
+   * Проверяет, содержит ли текст запрос.
+   *
+   * @param folded текст, уже приведённый к нижнему регистру {@link TextTokenizer#fold(String)}
+   * @return {@code true}, если запрос входит в текст
+   */
+  boolean matches(String folded) {
+    if (scanner != null) {
+      return scanner.matches(folded);
+    }
+    if (shifts == null) {
+      return folded.contains(pattern);
+    }
+    int last = pattern.length() - 1;
+    char lastChar = pattern.charAt(last);
+    for (int i = last; i < folded.length(); ) {
+      char c = folded.charAt(i);
+      if (c == lastChar && folded.regionMatches(i - last, pattern, 0, last)) {
+        return true;
+      }
+      i += shifts[c & (TABLE_SIZE - 1)];
+    }
+    return false;
+  }
+}
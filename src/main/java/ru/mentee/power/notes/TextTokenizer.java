@@ -0,0 +1,60 @@
+package ru.mentee.power.notes;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Разбивает текст заметки на слова для полнотекстового индекса.
+ *
+ * <p>Словом считается непрерывная последовательность букв и цифр; все остальные символы
+ * — разделители. Слова приводятся к нижнему регистру функцией {@link #fold(String)}, как и текст
+ * при поиске подстроки.
+ */
+final class TextTokenizer {
+
+  private TextTokenizer() {
+  }
+
+  /**
+   * Приводит строку к нижнему регистру для поиска без учёта регистра.
+   *
+   * <p>Правила не зависят от локали по умолчанию: с ней, например, в турецкой локали «I»
+   * превращается в «ı», и запрос «TITLE» не находил бы «title». Строку, в которой менять нечего,
+   * {@link String#toLowerCase(Locale)} возвращает без копирования.
+   *
+   * @param text строка (не {@code null})
+   * @return строка в нижнем регистре
+   */
+  static String fold(String text) {
+    return text.toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Возвращает множество различных слов текста.
+   *
+   * @param text текст (не {@code null})
+   * @return слова в нижнем регистре без повторов
+   */
+  static Set<String> terms(String text) {
+    Set<String> terms = new HashSet<>();
+    int start = -1;
+    int i = 0;
+    while (i < text.length()) {
+      int codePoint = text.codePointAt(i);
+      if (Character.isLetterOrDigit(codePoint)) {
+        if (start < 0) {
+          start = i;
+        }
+      } else if (start >= 0) {
+        terms.add(fold(text.substring(start, i)));
+        start = -1;
+      }
+      i += Character.charCount(codePoint);
+    }
+    if (start >= 0) {
+      terms.add(fold(text.substring(start)));
+    }
+    return terms;
+  }
+}
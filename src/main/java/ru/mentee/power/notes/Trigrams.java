@@ -0,0 +1,44 @@
+package ru.mentee.power.notes;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Разбивает строку на триграммы — все подстроки длины {@value #LENGTH}.
+ *
+ * <p>Триграмма упаковывается в {@code long}: по 16 бит на символ, после чего значение умножается
+ * на нечётную константу. Умножение обратимо, поэтому разные триграммы остаются разными ключами, но
+ * биты символов перемешиваются: у простой упаковки {@link Long#hashCode()} для ASCII-текста
+ * различает лишь несколько бит, и хеш-таблицы индекса вырождались в длинные цепочки.
+ *
+ * <p>Если строка {@code q} является
+ * подстрокой {@code t}, то все триграммы {@code q} встречаются и в {@code t}, поэтому пересечение
+ * списков триграмм запроса даёт надмножество совпадений, которое остаётся только проверить.
+ */
+final class Trigrams {
+
+  private static final long MIX = 0x9E3779B97F4A7C15L;
+
+  /** Длина n-граммы. Запросы короче неё индекс сузить не может. */
+  static final int LENGTH = 3;
+
+  private Trigrams() {
+  }
+
+  /**
+   * Возвращает множество различных триграмм строки.
+   *
+   * @param folded строка, уже приведённая к нижнему регистру
+   * @return упакованные триграммы; пустое множество для строк короче {@value #LENGTH}
+   */
+  static Set<Long> of(String folded) {
+    Set<Long> trigrams = new HashSet<>();
+    for (int i = 0; i + LENGTH <= folded.length(); i++) {
+      long packed = ((long) folded.charAt(i) << 32)
+          | ((long) folded.charAt(i + 1) << 16)
+          | folded.charAt(i + 2);
+      trigrams.add(packed * MIX);
+    }
+    return trigrams;
+  }
+}
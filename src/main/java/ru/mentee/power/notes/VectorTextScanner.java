@@ -0,0 +1,94 @@
+package ru.mentee.power.notes;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Векторный поиск подстроки для {@link TextMatcher} на инкубаторном Vector API.
+ *
+ * <p>Текст просматривается блоками по числу дорожек регистра: в одном регистре сравниваются
+ * символы блока с первым символом запроса, в другом — символы, сдвинутые на длину запроса, с его
+ * последним символом. Полное сравнение {@link String#regionMatches} выполняется только для
+ * позиций, где совпали оба края, а их в обычном тексте единицы на блок. Хвост текста короче блока
+ * дочитывается {@link String#indexOf(String, int)}.
+ *
+ * <p>Внутренний массив строки недоступен, поэтому текст копируется в буфер потока через
+ * {@link String#getChars}; копирование последовательно и почти бесплатно по сравнению с
+ * посимвольным сравнением. Буфер фиксированного размера {@value #CHUNK_CHARS} символов, и длинный
+ * текст просматривается кусками: соседние куски перекрываются на длину запроса, чтобы не
+ * пропустить вхождение на границе. Так один очень длинный текст не оставляет потоку буфер своего
+ * размера. Дорожки шириной 16 бит подходят и для латиницы, и для кириллицы.
+ *
+ * <p>Класс ссылается на модуль {@code jdk.incubator.vector}, и {@link TextMatcher} создаёт его
+ * только если модуль подключён через {@code --add-modules}; иначе поиск остаётся скалярным.
+ * Экземпляр неизменяем и потокобезопасен.
+ */
+final class VectorTextScanner {
+
+  private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+
+  /** Размер буфера потока; запросы длиннее него ищутся скалярно. */
+  static final int CHUNK_CHARS = 8192;
+
+  private static final ThreadLocal<char[]> BUFFER =
+      ThreadLocal.withInitial(() -> new char[CHUNK_CHARS]);
+
+  private final String pattern;
+
+  private final ShortVector first;
+
+  private final ShortVector last;
+
+  /**
+   * Готовит поиск запроса.
+   *
+   * @param pattern запрос, уже приведённый к нижнему регистру; не короче двух символов
+   */
+  VectorTextScanner(String pattern) {
+    this.pattern = pattern;
+    this.first = ShortVector.broadcast(SPECIES, (short) pattern.charAt(0));
+    this.last = ShortVector.broadcast(SPECIES, (short) pattern.charAt(pattern.length() - 1));
+  }
+
+  /**
+   * Проверяет, содержит ли текст запрос.
+   *
+   * @param folded текст, уже приведённый к нижнему регистру
+   * @return {@code true}, если запрос входит в текст
+   */
+  boolean matches(String folded) {
+    int length = folded.length();
+    int patternLength = pattern.length();
+    int lanes = SPECIES.length();
+    int offset = patternLength - 1;
+    // Символы, которые читает один блок: дорожки и сдвиг до последнего символа запроса.
+    int window = lanes + offset;
+    if (length < window || window > CHUNK_CHARS) {
+      return folded.contains(pattern);
+    }
+    char[] chars = BUFFER.get();
+    int blockEnd = length - window;
+    int i = 0;
+    while (i <= blockEnd) {
+      int count = Math.min(CHUNK_CHARS, length - i);
+      folded.getChars(i, i + count, chars, 0);
+      int chunkEnd = count - window;
+      int j = 0;
+      for (; j <= chunkEnd; j += lanes) {
+        long candidates = ShortVector.fromCharArray(SPECIES, chars, j).eq(first)
+            .and(ShortVector.fromCharArray(SPECIES, chars, j + offset).eq(last))
+            .toLong();
+        while (candidates != 0) {
+          if (folded.regionMatches(i + j + Long.numberOfTrailingZeros(candidates), pattern, 0,
+              patternLength)) {
+            return true;
+          }
+          candidates &= candidates - 1;
+        }
+      }
+      // Следующий кусок начинается с первого непроверенного блока.
+      i += j;
+    }
+    return folded.indexOf(pattern, i) >= 0;
+  }
+}
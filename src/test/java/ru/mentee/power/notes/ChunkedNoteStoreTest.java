@@ -0,0 +1,80 @@
+package ru.mentee.power.notes;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Тесты для ChunkedNoteStore")
+class ChunkedNoteStoreTest {
+
+  @Test
+  @DisplayName("Совпадает с TreeMap, включая порядок обхода и компактификацию")
+  void shouldBehaveLikeSortedMap() {
+    ChunkedNoteStore store = new ChunkedNoteStore();
+    TreeMap<Integer, Note> reference = new TreeMap<>();
+    Random random = new Random(42);
+
+    for (int i = 0; i < 100_000; i++) {
+      int id = 1 + random.nextInt(20_000);
+      switch (random.nextInt(4)) {
+        case 0 -> {
+          Note note = new Note(id, "T", "text");
+          store.put(note);
+          reference.put(id, note);
+        }
+        case 1, 2 -> assertThat(store.remove(id)).isSameAs(reference.remove(id));
+        default -> assertThat(store.get(id)).isSameAs(reference.get(id));
+      }
+      if (i % 10_000 == 0) {
+        store.compact();
+      }
+    }
+
+    assertThat(store.size()).isEqualTo(reference.size());
+    assertThat(store).containsExactlyElementsOf(reference.values());
+  }
+
+  @Test
+  @DisplayName("Пустые блоки освобождаются, а запись в них снова возможна")
+  void shouldReclaimEmptyChunks() {
+    ChunkedNoteStore store = new ChunkedNoteStore();
+    int total = ChunkedNoteStore.CHUNK_SIZE * 3;
+    for (int id = 1; id <= total; id++) {
+      store.put(new Note(id, "T", "t"));
+    }
+
+    for (int id = 1; id < ChunkedNoteStore.CHUNK_SIZE * 2; id++) {
+      store.remove(id);
+    }
+    store.compact();
+
+    assertThat(store.get(1)).isNull();
+    assertThat(store.get(ChunkedNoteStore.CHUNK_SIZE * 2).getId())
+        .isEqualTo(ChunkedNoteStore.CHUNK_SIZE * 2);
+    assertThat(store.size()).isEqualTo(total - ChunkedNoteStore.CHUNK_SIZE * 2 + 1);
+
+    Note revived = new Note(5, "T", "t");
+    store.put(revived);
+    assertThat(store.get(5)).isSameAs(revived);
+    assertThat(store).first().isSameAs(revived);
+  }
+
+  @Test
+  @DisplayName("NoteService возвращает заметки в порядке id")
+  void shouldListNotesInIdOrder() {
+    NoteService service = new NoteService(StorageType.CHUNKED_ARRAY, true);
+    Note a = service.addNote("A", "a", Set.of("x"));
+    Note b = service.addNote("B", "b", Set.of());
+    Note c = service.addNote("C", "c", Set.of("x"));
+
+    service.deleteNote(b.getId());
+    service.compactStorage();
+
+    assertThat(service.getAllNotes()).containsExactly(a, c);
+    assertThat(service.findNotesByTags(Set.of("x"))).containsExactly(a, c);
+  }
+}
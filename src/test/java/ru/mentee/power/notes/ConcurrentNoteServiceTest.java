@@ -0,0 +1,112 @@
+package ru.mentee.power.notes;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Тесты конкурентного режима NoteService")
+class ConcurrentNoteServiceTest {
+
+  private static final int THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+  private NoteService noteService;
+
+  @BeforeEach
+  void setUp() {
+    noteService = new NoteService(true);
+  }
+
+  @Test
+  @DisplayName("Параллельное добавление заметок выдаёт уникальные id")
+  void shouldAddNotesConcurrently() throws Exception {
+    int perThread = 2_000;
+
+    runInParallel(THREADS, thread -> {
+      for (int i = 0; i < perThread; i++) {
+        noteService.addNote("T" + thread, "text " + i, Set.of("t" + thread));
+      }
+    });
+
+    assertThat(noteService.getAllNotes()).hasSize(THREADS * perThread);
+    assertThat(noteService.getAllNotes()).extracting(Note::getId).doesNotHaveDuplicates();
+    assertThat(noteService.findNotesByTags(Set.of("t0"))).hasSize(perThread);
+  }
+
+  @Test
+  @DisplayName("Параллельное добавление тегов к одной заметке не теряет изменений")
+  void shouldNotLoseConcurrentTagUpdates() throws Exception {
+    Note note = noteService.addNote("Shared", "text", null);
+    int perThread = 500;
+
+    runInParallel(THREADS, thread -> {
+      for (int i = 0; i < perThread; i++) {
+        noteService.addTagToNote(note.getId(), "tag-" + thread + "-" + i);
+        noteService.updateNoteText(note.getId(), "Shared", "text " + i);
+      }
+    });
+
+    assertThat(note.getTags()).hasSize(THREADS * perThread);
+
+    runInParallel(THREADS, thread -> {
+      for (int i = 0; i < perThread; i++) {
+        noteService.removeTagFromNote(note.getId(), "tag-" + thread + "-" + i);
+      }
+    });
+
+    assertThat(note.getTags()).isEmpty();
+  }
+
+  @Test
+  @DisplayName("Один и тот же тег добавляется ровно одним потоком")
+  void shouldAddSameTagExactlyOnce() throws Exception {
+    Note note = noteService.addNote("Shared", "text", null);
+    List<Boolean> results = new ArrayList<>();
+
+    runInParallel(THREADS, thread -> {
+      boolean added = noteService.addTagToNote(note.getId(), "java");
+      synchronized (results) {
+        results.add(added);
+      }
+    });
+
+    assertThat(results).containsOnlyOnce(true);
+    assertThat(note.getTags()).containsExactly("java");
+  }
+
+  private static void runInParallel(int threads, ThreadTask task) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        int thread = t;
+        futures.add(executor.submit(() -> {
+          start.await();
+          task.run(thread);
+          return null;
+        }));
+      }
+      start.countDown();
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @FunctionalInterface
+  private interface ThreadTask {
+
+    void run(int thread) throws Exception;
+  }
+}
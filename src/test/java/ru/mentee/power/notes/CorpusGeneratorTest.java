@@ -0,0 +1,66 @@
+package ru.mentee.power.notes;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Тесты для CorpusGenerator")
+class CorpusGeneratorTest {
+
+  @Test
+  @DisplayName("Одинаковое зерно даёт одинаковый корпус, соседние заметки не повторяют друг друга")
+  void shouldBeDeterministic() {
+    CorpusGenerator first = new CorpusGenerator(1);
+    CorpusGenerator second = new CorpusGenerator(1);
+
+    for (int i = 0; i < 100; i++) {
+      assertThat(second.entry(i)).isEqualTo(first.entry(i));
+    }
+    assertThat(first.entry(1).text()).doesNotContain(first.entry(0).text());
+    assertThat(new CorpusGenerator(2).entry(0)).isNotEqualTo(first.entry(0));
+  }
+
+  @Test
+  @DisplayName("Теги распределены с перекосом, длина текста — вокруг медианы")
+  void shouldFollowDistributions() {
+    CorpusGenerator generator = new CorpusGenerator(7, 1000, 1.1, 200, 1.0, 0.7);
+    Map<String, Integer> tagCounts = new HashMap<>();
+    int[] lengths = new int[20_000];
+    for (int i = 0; i < lengths.length; i++) {
+      CorpusGenerator.Entry entry = generator.entry(i);
+      lengths[i] = entry.text().length();
+      entry.tags().forEach(tag -> tagCounts.merge(tag, 1, Integer::sum));
+    }
+    Arrays.sort(lengths);
+
+    assertThat(lengths[lengths.length / 2]).isBetween(180, 230);
+    assertThat(lengths[lengths.length - 1]).isGreaterThan(2000);
+    assertThat(tagCounts.get(generator.tag(0)))
+        .isGreaterThan(100 * tagCounts.getOrDefault(generator.tag(999), 1));
+  }
+
+  @Test
+  @DisplayName("Параллельное заполнение даёт тот же набор заметок, что и последовательное")
+  void shouldPopulateSameNotesInParallel() {
+    CorpusGenerator generator = new CorpusGenerator(3);
+    NoteService sequential = new NoteService();
+    NoteService parallel = new NoteService(true);
+
+    generator.populate(sequential, 2000);
+    generator.populate(parallel, 2000);
+
+    List<String> expected = IntStream.range(0, 2000)
+        .mapToObj(i -> generator.entry(i).text()).toList();
+    assertThat(sequential.getAllNotes()).extracting(Note::getText)
+        .containsExactlyElementsOf(expected);
+    assertThat(parallel.getAllNotes()).extracting(Note::getText)
+        .containsExactlyInAnyOrderElementsOf(expected);
+    assertThat(parallel.getTagCounts()).isEqualTo(sequential.getTagCounts());
+  }
+}
@@ -0,0 +1,193 @@
+package ru.mentee.power.notes;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Тесты для IdBitmap")
+class IdBitmapTest {
+
+  /** Число форм блока в {@link #fill}. */
+  private static final int SHAPES = 5;
+
+  @Test
+  @DisplayName("Совпадает с TreeSet на случайной последовательности операций")
+  void shouldBehaveLikeTreeSet() {
+    IdBitmap bitmap = new IdBitmap();
+    TreeSet<Integer> reference = new TreeSet<>();
+    Random random = new Random(42);
+
+    for (int i = 0; i < 200_000; i++) {
+      // Плотный диапазон даёт битовые и run-контейнеры, разреженный — контейнеры-массивы.
+      int id = random.nextBoolean() ? random.nextInt(100_000) : random.nextInt(Integer.MAX_VALUE);
+      if (random.nextInt(3) == 0) {
+        assertThat(bitmap.remove(id)).isEqualTo(reference.remove(id));
+      } else {
+        assertThat(bitmap.add(id)).isEqualTo(reference.add(id));
+      }
+    }
+    bitmap.runOptimize();
+
+    assertThat(bitmap.cardinality()).isEqualTo(reference.size());
+    assertThat(bitmap.toArray())
+        .containsExactly(reference.stream().mapToInt(Integer::intValue).toArray());
+  }
+
+  @Test
+  @DisplayName("and, or и andNot совпадают с операциями над множествами")
+  void shouldCombineLikeSets() {
+    Random random = new Random(7);
+    IdBitmap left = new IdBitmap();
+    IdBitmap right = new IdBitmap();
+    TreeSet<Integer> leftSet = new TreeSet<>();
+    TreeSet<Integer> rightSet = new TreeSet<>();
+    for (int i = 0; i < 50_000; i++) {
+      int a = random.nextInt(300_000);
+      int b = 100_000 + random.nextInt(300_000);
+      left.add(a);
+      leftSet.add(a);
+      right.add(b);
+      rightSet.add(b);
+    }
+    for (int id = 150_000; id < 250_000; id++) {
+      right.add(id);
+      rightSet.add(id);
+    }
+    right.runOptimize();
+
+    TreeSet<Integer> and = new TreeSet<>(leftSet);
+    and.retainAll(rightSet);
+    TreeSet<Integer> or = new TreeSet<>(leftSet);
+    or.addAll(rightSet);
+    TreeSet<Integer> andNot = new TreeSet<>(leftSet);
+    andNot.removeAll(rightSet);
+
+    assertThat(IdBitmap.and(left, right).toArray()).containsExactly(toArray(and));
+    assertThat(IdBitmap.or(left, right).toArray()).containsExactly(toArray(or));
+    assertThat(IdBitmap.andNot(left, right).toArray()).containsExactly(toArray(andNot));
+    assertThat(left.toArray()).containsExactly(toArray(leftSet));
+  }
+
+  @Test
+  @DisplayName("Объединение на месте совпадает с TreeSet")
+  void shouldMergeInPlace() {
+    Random random = new Random(7);
+    IdBitmap target = new IdBitmap();
+    TreeSet<Integer> expected = new TreeSet<>();
+    for (int round = 0; round < 5; round++) {
+      IdBitmap batch = new IdBitmap();
+      for (int i = 0; i < 20_000; i++) {
+        int id = random.nextInt(400_000);
+        batch.add(id);
+        expected.add(id);
+      }
+      for (int id = round * 70_000; id < round * 70_000 + 30_000; id++) {
+        batch.add(id);
+        expected.add(id);
+      }
+      batch.runOptimize();
+      target.addAll(batch);
+      assertThat(target.cardinality()).isEqualTo(expected.size());
+    }
+
+    assertThat(target.toArray()).containsExactly(toArray(expected));
+  }
+
+  @Test
+  @DisplayName("ceiling совпадает с TreeSet во всех представлениях блоков")
+  void shouldFindCeiling() {
+    Random random = new Random(11);
+    IdBitmap bitmap = new IdBitmap();
+    TreeSet<Integer> reference = new TreeSet<>();
+    for (int i = 0; i < 30_000; i++) {
+      int id = random.nextInt(500_000);
+      bitmap.add(id);
+      reference.add(id);
+    }
+    for (int id = 200_000; id < 270_000; id++) {
+      bitmap.add(id);
+      reference.add(id);
+    }
+    bitmap.runOptimize();
+
+    for (int i = 0; i < 10_000; i++) {
+      int id = random.nextInt(600_000) - 10;
+      Integer expected = reference.ceiling(id);
+      assertThat(bitmap.ceiling(id)).isEqualTo(expected != null ? expected : -1);
+    }
+  }
+
+  @Test
+  @DisplayName("and, or и andNot верны для каждой пары представлений блоков")
+  void shouldCombineEveryContainerPair() {
+    Random random = new Random(9);
+    for (int leftShape = 0; leftShape < SHAPES; leftShape++) {
+      for (int rightShape = 0; rightShape < SHAPES; rightShape++) {
+        IdBitmap left = new IdBitmap();
+        IdBitmap right = new IdBitmap();
+        TreeSet<Integer> leftSet = new TreeSet<>();
+        TreeSet<Integer> rightSet = new TreeSet<>();
+        fill(random, leftShape, left, leftSet);
+        fill(random, rightShape, right, rightSet);
+        left.runOptimize();
+        right.runOptimize();
+
+        TreeSet<Integer> and = new TreeSet<>(leftSet);
+        and.retainAll(rightSet);
+        TreeSet<Integer> or = new TreeSet<>(leftSet);
+        or.addAll(rightSet);
+        TreeSet<Integer> andNot = new TreeSet<>(leftSet);
+        andNot.removeAll(rightSet);
+
+        String pair = leftShape + " x " + rightShape;
+        assertThat(IdBitmap.and(left, right).toArray()).as(pair).containsExactly(toArray(and));
+        assertThat(IdBitmap.or(left, right).toArray()).as(pair).containsExactly(toArray(or));
+        assertThat(IdBitmap.andNot(left, right).toArray()).as(pair)
+            .containsExactly(toArray(andNot));
+        IdBitmap merged = left.copy();
+        merged.addAll(right);
+        assertThat(merged.toArray()).as(pair).containsExactly(toArray(or));
+        assertThat(merged.cardinality()).as(pair).isEqualTo(or.size());
+      }
+    }
+  }
+
+  /**
+   * Заполняет один блок: 0 — немного случайных значений (массив), 1 — много случайных (битовая
+   * карта), 2 — несколько длинных отрезков, 3 — много коротких отрезков, 4 — почти весь блок.
+   */
+  private static void fill(Random random, int shape, IdBitmap bitmap, TreeSet<Integer> set) {
+    List<Integer> ids = new ArrayList<>();
+    switch (shape) {
+      case 0 -> random.ints(1 + random.nextInt(300), 0, 65536).forEach(ids::add);
+      case 1 -> random.ints(20_000, 0, 65536).forEach(ids::add);
+      case 2 -> {
+        for (int run = 0; run < 3; run++) {
+          int start = random.nextInt(60_000);
+          IntStream.range(start, start + random.nextInt(5000)).forEach(ids::add);
+        }
+      }
+      case 3 -> {
+        for (int run = 0; run < 200; run++) {
+          int start = random.nextInt(65_000);
+          IntStream.rangeClosed(start, start + random.nextInt(8)).forEach(ids::add);
+        }
+      }
+      default -> IntStream.range(0, 65536).filter(id -> id % 1000 != 7).forEach(ids::add);
+    }
+    for (int id : ids) {
+      bitmap.add(id);
+      set.add(id);
+    }
+  }
+
+  private static int[] toArray(TreeSet<Integer> set) {
+    return set.stream().mapToInt(Integer::intValue).toArray();
+  }
+}
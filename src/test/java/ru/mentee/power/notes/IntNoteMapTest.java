@@ -0,0 +1,78 @@
+package ru.mentee.power.notes;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Тесты для IntNoteMap")
+class IntNoteMapTest {
+
+  @Test
+  @DisplayName("Совпадает с HashMap на случайной последовательности операций")
+  void shouldBehaveLikeHashMap() {
+    IntNoteMap map = new IntNoteMap();
+    Map<Integer, Note> reference = new HashMap<>();
+    Random random = new Random(42);
+
+    for (int i = 0; i < 100_000; i++) {
+      int id = 1 + random.nextInt(2_000);
+      switch (random.nextInt(3)) {
+        case 0 -> {
+          Note note = new Note(id, "T", "text");
+          map.put(note);
+          reference.put(id, note);
+        }
+        case 1 -> assertThat(map.remove(id)).isSameAs(reference.remove(id));
+        default -> assertThat(map.get(id)).isSameAs(reference.get(id));
+      }
+      assertThat(map.size()).isEqualTo(reference.size());
+    }
+
+    assertThat(map).containsExactlyInAnyOrderElementsOf(reference.values());
+  }
+
+  @Test
+  @DisplayName("Отклоняет неположительные идентификаторы")
+  void shouldRejectNonPositiveIds() {
+    IntNoteMap map = new IntNoteMap();
+    assertThatThrownBy(() -> map.put(new Note(0, "T", "t")))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  @DisplayName("Удаление нулевого и отрицательного id ничего не меняет")
+  void shouldIgnoreRemovalOfNonPositiveIds() {
+    IntNoteMap map = new IntNoteMap();
+    map.put(new Note(1, "T", "t"));
+
+    assertThat(map.remove(0)).isNull();
+    assertThat(map.remove(0)).isNull();
+    assertThat(map.remove(-1)).isNull();
+    assertThat(map.size()).isEqualTo(1);
+
+    NoteService service = new NoteService(StorageType.PRIMITIVE_MAP, false);
+    service.addNote("A", "text", null);
+    assertThat(service.deleteNote(0)).isFalse();
+    assertThat(service.deleteNote(0)).isFalse();
+    assertThat(service.getAllNotes()).hasSize(1);
+  }
+
+  @Test
+  @DisplayName("NoteService работает поверх примитивной таблицы")
+  void shouldServeNotesFromPrimitiveStorage() {
+    NoteService service = new NoteService(StorageType.PRIMITIVE_MAP, false);
+    Note note = service.addNote("A", "Hello", Set.of("java"));
+    service.addNote("B", "World", Set.of());
+
+    assertThat(service.getNoteById(note.getId())).containsSame(note);
+    assertThat(service.findNotesByTags(Set.of("java"))).containsExactly(note);
+    assertThat(service.deleteNote(note.getId())).isTrue();
+    assertThat(service.getAllNotes()).extracting(Note::getTitle).containsExactly("B");
+  }
+}
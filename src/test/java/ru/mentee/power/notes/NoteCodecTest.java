@@ -0,0 +1,65 @@
+package ru.mentee.power.notes;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+@DisplayName("Тесты для NoteCodec")
+class NoteCodecTest {
+
+  @ParameterizedTest
+  @ValueSource(strings = {"", "Hello", "Привет, мир", "日本語", "emoji 😀 и 𝄞", "lone \uD800 x"})
+  @DisplayName("Заметка после кодирования и декодирования совпадает с исходной")
+  void shouldRoundTripNote(String text) {
+    Note note = new Note(300, "Заголовок " + text, text, LocalDate.of(1900, 2, 28));
+    note.addTag("Java");
+    note.addTag("заметки");
+    NoteCodec.TagTable tags = new NoteCodec.TagTable();
+    for (int tagCode : note.tagCodes()) {
+      tags.add(tagCode);
+    }
+
+    int size = NoteCodec.encodedSize(note, tags);
+    ByteBuffer buffer = ByteBuffer.allocateDirect(size);
+    NoteCodec.encode(buffer, note, tags);
+    assertThat(buffer.position()).isEqualTo(size);
+
+    Note decoded = new NoteCodec().decode(buffer.flip(), tags);
+    assertThat(buffer.hasRemaining()).isFalse();
+    assertThat(decoded.getId()).isEqualTo(300);
+    assertThat(decoded.getTitle()).isEqualTo(new String(
+        note.getTitle().getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8));
+    assertThat(decoded.getCreationDate()).isEqualTo(note.getCreationDate());
+    assertThat(decoded.getTags()).containsExactlyInAnyOrder("java", "заметки");
+  }
+
+  @Test
+  @DisplayName("varint: размер совпадает с записанным, граничные значения читаются обратно")
+  void shouldRoundTripVarints() {
+    int[] values = {0, 1, 127, 128, 16_383, 16_384, 2_097_151, 2_097_152, Integer.MAX_VALUE, -1};
+    ByteBuffer buffer = ByteBuffer.allocate(64);
+    for (int value : values) {
+      buffer.clear();
+      NoteCodec.putVarint(buffer, value);
+      assertThat(buffer.position()).isEqualTo(NoteCodec.varintSize(value));
+      assertThat(NoteCodec.getVarint(buffer.flip())).isEqualTo(value);
+    }
+  }
+
+  @Test
+  @DisplayName("Неизвестный код тега — ошибка формата")
+  void shouldRejectUnknownTagCode() {
+    NoteCodec.TagTable tags = new NoteCodec.TagTable();
+    assertThatThrownBy(() -> tags.global(0)).isInstanceOf(IllegalArgumentException.class);
+    tags.put(2, Note.internTag("java"));
+    assertThatThrownBy(() -> tags.global(1)).isInstanceOf(IllegalArgumentException.class);
+    assertThat(tags.size()).isEqualTo(3);
+  }
+}
@@ -0,0 +1,57 @@
+package ru.mentee.power.notes;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@DisplayName("Тесты для событий JFR")
+class NoteEventsTest {
+
+  @TempDir
+  Path directory;
+
+  @Test
+  @DisplayName("Операции сервиса записываются в JFR с идентификатором, запросом и индексом")
+  void shouldRecordServiceEvents() throws IOException {
+    NoteService service = new NoteService();
+    List<RecordedEvent> events;
+    try (Recording recording = new Recording()) {
+      for (String name : List.of("NoteAdded", "NoteUpdated", "NoteDeleted", "NoteSearch")) {
+        recording.enable("ru.mentee.notes." + name);
+      }
+      recording.start();
+      Note note = service.addNote("A", "hello world", Set.of("java", "tdd"));
+      service.addTagToNote(100, "kotlin");
+      service.findNotesByText("world");
+      service.findNotesByText("o");
+      service.findNotesByTags(Set.of("java"));
+      service.deleteNote(note.getId());
+      recording.stop();
+      Path file = directory.resolve("notes.jfr");
+      recording.dump(file);
+      events = RecordingFile.readAllEvents(file);
+    }
+
+    assertThat(events).extracting(event -> event.getEventType().getName()).containsExactly(
+        "ru.mentee.notes.NoteAdded", "ru.mentee.notes.NoteUpdated", "ru.mentee.notes.NoteSearch",
+        "ru.mentee.notes.NoteSearch", "ru.mentee.notes.NoteSearch", "ru.mentee.notes.NoteDeleted");
+    assertThat(events.get(0).getInt("tagCount")).isEqualTo(2);
+    assertThat(events.get(1).getBoolean("found")).isFalse();
+    RecordedEvent trigramSearch = events.get(2);
+    assertThat(trigramSearch.getString("query")).isEqualTo("world");
+    assertThat(trigramSearch.getString("index")).isEqualTo("trigram");
+    assertThat(trigramSearch.getInt("resultCount")).isEqualTo(1);
+    assertThat(events.get(3).getString("index")).isEqualTo("scan");
+    assertThat(events.get(4).getString("index")).isEqualTo("tag");
+    assertThat(events.get(5).getInt("noteId")).isEqualTo(1);
+  }
+}
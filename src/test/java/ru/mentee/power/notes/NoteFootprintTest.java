@@ -0,0 +1,89 @@
+package ru.mentee.power.notes;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+@DisplayName("Тесты памяти, занимаемой заметкой")
+class NoteFootprintTest {
+
+  private static final List<String> TAGS = List.of("дом", "список", "срочно");
+
+  /**
+   * Прежнее представление заметки: объект даты и собственный HashSet тегов. Текст в нижнем
+   * регистре хранится так же, как в {@link Note}, чтобы сравнивать только изменённые поля.
+   */
+  private record LegacyNote(int id, String title, String text, String foldedText,
+      LocalDate creationDate, Set<String> tags) {
+  }
+
+  @Test
+  @DisplayName("Сохранённой заметке принадлежат строки, массив кодов тегов и кеш текста")
+  void shouldOwnOnlyStringsTagCodesAndFoldedText() {
+    Note note = storedNote("Купить молоко и хлеб");
+
+    GraphLayout layout = GraphLayout.parseInstance(note);
+
+    assertThat(layout.getClasses()).extracting(Class::getSimpleName)
+        .containsExactlyInAnyOrder("Note", "FoldedText", "String", "byte[]", "int[]");
+    // Заметка, обёртка кеша, массив тегов и по строке с массивом на заголовок, текст и кеш.
+    assertThat(layout.totalCount()).isEqualTo(9);
+  }
+
+  @Test
+  @DisplayName("Для текста в нижнем регистре кеш не копирует строку")
+  void shouldShareLowercaseText() {
+    Note note = storedNote("купить молоко и хлеб");
+
+    assertThat(note.foldedText()).isSameAs(note.getText());
+    assertThat(GraphLayout.parseInstance(note).totalCount()).isEqualTo(7);
+  }
+
+  @Test
+  @DisplayName("Сохранённая заметка занимает меньше двух третей прежнего представления")
+  void shouldTakeLessThanLegacyLayout() {
+    Note note = storedNote("Купить молоко и хлеб");
+    LegacyNote legacy = new LegacyNote(1, new String("Покупки"), new String("Купить молоко и хлеб"),
+        new String("купить молоко и хлеб"), LocalDate.now(), new HashSet<>(TAGS));
+
+    long compactSize = GraphLayout.parseInstance(note).totalSize();
+    // Строки тегов общие для всех заметок, поэтому в прежнем представлении их не считаем.
+    long legacySize = GraphLayout.parseInstance(legacy)
+        .subtract(GraphLayout.parseInstance(TAGS.toArray()))
+        .totalSize();
+
+    assertThat(compactSize * 3).as("compact %d, legacy %d", compactSize, legacySize)
+        .isLessThan(legacySize * 2);
+  }
+
+  @Test
+  @DisplayName("Дата создания хранится днём эпохи и восстанавливается без потерь")
+  void shouldKeepCreationDateAsEpochDay() {
+    LocalDate date = LocalDate.of(1900, 2, 28);
+    Note note = new Note(1, "T", "t", date);
+
+    assertThat(note.getCreationDate()).isEqualTo(date);
+    assertThat((long) note.creationDay()).isEqualTo(date.toEpochDay());
+    assertThat(new Note(2, "T", "t").getCreationDate()).isEqualTo(LocalDate.now());
+    assertThatThrownBy(() -> new Note(3, "T", "t", LocalDate.MAX))
+        .isInstanceOf(ArithmeticException.class);
+  }
+
+  /**
+   * Добавляет заметку с тремя тегами через сервис и отключает от неё наблюдателя: он общий для
+   * всех заметок и ссылается на весь сервис, поэтому в размер заметки не входит.
+   */
+  private static Note storedNote(String text) {
+    Note note = new NoteService().addNote("Покупки", text, new LinkedHashSet<>(TAGS));
+    note.setListener(null);
+    return note;
+  }
+}
@@ -0,0 +1,101 @@
+package ru.mentee.power.notes;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Тесты для NoteMetrics")
+class NoteMetricsTest {
+
+  @Test
+  @DisplayName("Процентили гистограммы отличаются от точных не больше чем на 1/32")
+  void shouldApproximatePercentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    Random random = new Random(42);
+    long[] values = new long[100_000];
+    for (int i = 0; i < values.length; i++) {
+      // Логнормальное распределение: от сотен наносекунд до десятков миллисекунд.
+      values[i] = (long) Math.exp(10 + 2 * random.nextGaussian());
+      histogram.record(values[i]);
+    }
+    Arrays.sort(values);
+
+    LatencySnapshot snapshot = histogram.snapshot();
+    assertThat(snapshot.count()).isEqualTo(values.length);
+    assertThat(snapshot.maxNanos()).isEqualTo(values[values.length - 1]);
+    assertThat(snapshot.totalNanos()).isEqualTo(Arrays.stream(values).sum());
+    for (double percentile : new double[] {50, 99, 99.9}) {
+      long exact = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+      assertThat(snapshot.valueAtPercentile(percentile))
+          .isBetween(exact, exact + exact / LatencyHistogram.SUB_BUCKETS);
+    }
+  }
+
+  @Test
+  @DisplayName("Записи из многих потоков в разные полосы складываются в снимке")
+  void shouldMergeStripesFromManyThreads() throws InterruptedException {
+    LatencyHistogram histogram = new LatencyHistogram();
+    int threads = 2 * LatencyHistogram.STRIPES + 1;
+    int perThread = 10_000;
+    List<Thread> workers = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      long value = 100 + t;
+      workers.add(Thread.ofPlatform().start(() -> {
+        for (int i = 0; i < perThread; i++) {
+          histogram.record(value);
+        }
+      }));
+    }
+    for (Thread worker : workers) {
+      worker.join();
+    }
+
+    LatencySnapshot snapshot = histogram.snapshot();
+    assertThat(snapshot.count()).isEqualTo((long) threads * perThread);
+    assertThat(snapshot.maxNanos()).isEqualTo(100 + threads - 1);
+    assertThat(snapshot.valueAtPercentile(100)).isEqualTo(
+        LatencyHistogram.highestValue(LatencyHistogram.bucket(100 + threads - 1)));
+  }
+
+  @Test
+  @DisplayName("Границы корзин покрывают весь диапазон long без пропусков")
+  void shouldCoverWholeRange() {
+    assertThat(LatencyHistogram.bucket(Long.MAX_VALUE)).isEqualTo(LatencyHistogram.BUCKETS - 1);
+    assertThat(LatencyHistogram.highestValue(LatencyHistogram.BUCKETS - 1))
+        .isEqualTo(Long.MAX_VALUE);
+    for (int bucket = 0; bucket < LatencyHistogram.BUCKETS - 1; bucket++) {
+      long highest = LatencyHistogram.highestValue(bucket);
+      assertThat(LatencyHistogram.bucket(highest)).isEqualTo(bucket);
+      assertThat(LatencyHistogram.bucket(highest + 1)).isEqualTo(bucket + 1);
+    }
+  }
+
+  @Test
+  @DisplayName("Сервис считает вызовы каждой операции отдельно")
+  void shouldCountServiceCalls() {
+    NoteService service = new NoteService();
+    Note note = service.addNote("A", "text", Set.of("java"));
+    service.getNoteById(note.getId());
+    service.getNoteById(100);
+    service.findNotesByTags(Set.of("java"));
+    service.findNotesByTags(Set.of("java"), Set.of("tdd"));
+    service.deleteNote(note.getId());
+
+    NoteMetrics metrics = service.metrics();
+    assertThat(metrics.snapshot(NoteOperation.ADD_NOTE).count()).isEqualTo(1);
+    assertThat(metrics.snapshot(NoteOperation.GET_NOTE_BY_ID).count()).isEqualTo(2);
+    assertThat(metrics.snapshot(NoteOperation.FIND_NOTES_BY_TAGS).count()).isEqualTo(2);
+    assertThat(metrics.snapshot(NoteOperation.DELETE_NOTE).count()).isEqualTo(1);
+    assertThat(metrics.snapshot()).hasSize(NoteOperation.values().length);
+    assertThat(metrics.snapshot().get(NoteOperation.GET_ALL_TAGS).p99()).isZero();
+    assertThatThrownBy(() -> metrics.snapshot(NoteOperation.ADD_NOTE).valueAtPercentile(101))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
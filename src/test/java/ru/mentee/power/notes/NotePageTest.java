@@ -0,0 +1,112 @@
+package ru.mentee.power.notes;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiFunction;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+@DisplayName("Тесты постраничной выдачи заметок")
+class NotePageTest {
+
+  @ParameterizedTest
+  @EnumSource(StorageType.class)
+  @DisplayName("Страницы по курсору складываются в полный результат по возрастанию id")
+  void shouldPageThroughFullResults(StorageType storageType) {
+    NoteService service = new NoteService(storageType, false);
+    CorpusGenerator corpus = new CorpusGenerator(3, 20, 1.0, 40, 0.5, 0.5);
+    corpus.populate(service, 3000);
+    for (int id = 1; id <= 3000; id += 7) {
+      service.deleteNote(id);
+    }
+
+    assertThat(collect(service::listNotes, 37)).isEqualTo(byId(service.getAllNotes()));
+    for (String query : List.of("а", "the", "дан")) {
+      assertThat(collect((limit, cursor) -> service.findNotesByText(query, limit, cursor), 13))
+          .isEqualTo(byId(service.findNotesByText(query)));
+    }
+    for (Set<String> tags : List.of(Set.<String>of(), Set.of(corpus.tag(0)),
+        Set.of(corpus.tag(0), corpus.tag(1)), Set.of(corpus.tag(0), "нет-такого"))) {
+      assertThat(collect((limit, cursor) -> service.findNotesByTags(tags, limit, cursor), 11))
+          .isEqualTo(byId(service.findNotesByTags(tags)));
+    }
+  }
+
+  @Test
+  @DisplayName("Изменения между запросами не сдвигают страницы")
+  void shouldKeepPositionAcrossChanges() {
+    NoteService service = new NoteService();
+    for (int i = 1; i <= 10; i++) {
+      service.addNote("T" + i, "text", Set.of("java"));
+    }
+
+    NotePage first = service.findNotesByTags(Set.of("java"), 4, null);
+    service.deleteNote(2);
+    service.deleteNote(5);
+    service.addNote("T11", "text", Set.of("java"));
+    NotePage second = service.findNotesByTags(Set.of("java"), 4, first.nextCursor());
+
+    assertThat(first.notes()).extracting(Note::getId).containsExactly(1, 2, 3, 4);
+    assertThat(second.notes()).extracting(Note::getId).containsExactly(6, 7, 8, 9);
+    assertThat(second.hasNext()).isTrue();
+    assertThat(service.findNotesByTags(Set.of("java"), 4, second.nextCursor()).nextCursor())
+        .isNull();
+  }
+
+  @Test
+  @DisplayName("Короткий запрос перебирает хранилище с места курсора")
+  void shouldScanFromCursorForShortQueries() {
+    NoteService service = new NoteService();
+    for (int i = 0; i < 10_000; i++) {
+      service.addNote("T" + i, i % 2 == 0 ? "java" : "kotlin", null);
+    }
+
+    NotePage first = service.findNotesByText("a", 5, null);
+    NotePage second = service.findNotesByText("a", 5, first.nextCursor());
+
+    assertThat(first.notes()).extracting(Note::getId).containsExactly(1, 3, 5, 7, 9);
+    assertThat(second.notes()).extracting(Note::getId).containsExactly(11, 13, 15, 17, 19);
+    assertThat(service.listNotes(3, second.nextCursor()).notes()).extracting(Note::getId)
+        .containsExactly(20, 21, 22);
+  }
+
+  @Test
+  @DisplayName("Некорректный лимит или курсор отклоняются")
+  void shouldRejectInvalidArguments() {
+    NoteService service = new NoteService();
+    service.addNote("A", "a", null);
+
+    assertThatThrownBy(() -> service.listNotes(0, null))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> service.listNotes(10, "не курсор"))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> service.findNotesByText("abc", 10, "AAAA"))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThat(service.findNotesByTags(null, 10, null).notes()).isEmpty();
+  }
+
+  private static List<Note> collect(BiFunction<Integer, String, NotePage> query, int limit) {
+    List<Note> notes = new ArrayList<>();
+    String cursor = null;
+    do {
+      NotePage page = query.apply(limit, cursor);
+      assertThat(page.notes()).hasSizeLessThanOrEqualTo(limit);
+      notes.addAll(page.notes());
+      cursor = page.nextCursor();
+    } while (cursor != null);
+    return notes;
+  }
+
+  private static List<Note> byId(List<Note> notes) {
+    List<Note> sorted = new ArrayList<>(notes);
+    sorted.sort(Comparator.comparingInt(Note::getId));
+    return sorted;
+  }
+}
@@ -5,6 +5,9 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import java.time.LocalDate;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import org.junit.jupiter.api.BeforeEach;
@@ -67,6 +70,29 @@ class NoteServiceTest {
       assertThat(noteService.getAllNotes().getFirst().getText()).isEmpty();
       assertThat(noteService.getAllNotes().getFirst().getTags()).isEqualTo(Set.of());
     }
+
+    @Test
+    @DisplayName("Пакетное добавление даёт то же, что добавление по одной")
+    void shouldAddNotesInBatch() {
+      noteService.addNote("Первая", "до пакета", null);
+
+      List<Note> added = noteService.addNotes(List.of(
+          new NoteDraft("A", "Java streams", Set.of("Java", "тест")),
+          new NoteDraft("B", "Kotlin coroutines", null),
+          new NoteDraft("C", "java records", Set.of("JAVA"))));
+
+      assertThat(added).extracting(Note::getId).containsExactly(2, 3, 4);
+      assertThat(added.getFirst().getTags()).containsExactlyInAnyOrder("java", "тест");
+      assertThat(noteService.getAllNotes()).hasSize(4);
+      assertThat(noteService.getNoteById(3)).contains(added.get(1));
+      assertThat(noteService.findNotesByText("JAVA")).extracting(Note::getTitle)
+          .containsExactlyInAnyOrder("A", "C");
+      assertThat(noteService.findNotesByTags(Set.of("java"))).extracting(Note::getTitle)
+          .containsExactlyInAnyOrder("A", "C");
+      assertThat(noteService.getTagCounts()).containsEntry("java", 2);
+      assertThat(noteService.addNotes(List.of())).isEmpty();
+      assertThat(noteService.addNote("D", "d", null).getId()).isEqualTo(5);
+    }
   }
 
   @Nested
@@ -276,6 +302,55 @@ class NoteServiceTest {
       assertThat(result).extracting(Note::getId).containsExactlyInAnyOrder(n1.getId(), n2.getId());
     }
 
+    @Test
+    @DisplayName("findNotesByText: параллельный перебор находит то же, что и последовательный")
+    void shouldFindSameNotesWithParallelScan() {
+      for (int i = 0; i < 5_000; i++) {
+        noteService.addNote("T" + i, i % 3 == 0 ? "Java " + i : "Kotlin " + i, Set.of());
+      }
+      noteService.setParallelScanThreshold(Integer.MAX_VALUE);
+      List<Note> shortQuery = noteService.findNotesByText("ja");
+      List<Note> longQuery = noteService.findNotesByText("otlin 1");
+
+      noteService.setParallelScanThreshold(0);
+
+      assertThat(noteService.findNotesByText("ja")).hasSize(1_667)
+          .containsExactlyInAnyOrderElementsOf(shortQuery);
+      assertThat(noteService.findNotesByText("otlin 1")).isNotEmpty()
+          .containsExactlyInAnyOrderElementsOf(longQuery);
+      assertThatThrownBy(() -> noteService.setParallelScanThreshold(-1))
+          .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("findNotesByText: регистр приводится независимо от локали по умолчанию")
+    void shouldFoldCaseIndependentlyOfDefaultLocale() {
+      Locale defaultLocale = Locale.getDefault();
+      Locale.setDefault(Locale.forLanguageTag("tr"));
+      try {
+        Note note = noteService.addNote("A", "TITLE in Istanbul", Set.of("INFO"));
+
+        assertThat(noteService.findNotesByText("title")).containsExactly(note);
+        assertThat(noteService.findNotesByText("IN")).containsExactly(note);
+        assertThat(noteService.findNotesByWords("istanbul")).containsExactly(note);
+        assertThat(noteService.findNotesByTags(Set.of("info"))).containsExactly(note);
+      } finally {
+        Locale.setDefault(defaultLocale);
+      }
+    }
+
+    @Test
+    @DisplayName("Текст в нижнем регистре кешируется и следует за изменением текста")
+    void shouldCacheFoldedTextUntilTextChanges() {
+      Note note = noteService.addNote("A", "Hello World", Set.of());
+
+      assertThat(note.foldedText()).isEqualTo("hello world").isSameAs(note.foldedText());
+      note.setText("ПРИВЕТ");
+      assertThat(note.foldedText()).isEqualTo("привет");
+      assertThat(noteService.findNotesByText("hello")).isEmpty();
+      assertThat(noteService.findNotesByText("пр")).containsExactly(note);
+    }
+
     @Test
     @DisplayName("findNotesByText: несуществующий текст")
     void shouldReturnEmptyForMissingText() {
@@ -284,6 +359,49 @@ class NoteServiceTest {
       assertThat(result).isEmpty();
     }
 
+    @Test
+    @DisplayName("findNotesByText: индекс триграмм следует за изменением текста")
+    void shouldFindSubstringAfterTextUpdate() {
+      Note n1 = noteService.addNote("A", "Hello world", Set.of());
+      Note n2 = noteService.addNote("B", "Привет, МИР", Set.of());
+
+      noteService.updateNoteText(n1.getId(), "A", "Goodbye world");
+      assertThat(noteService.findNotesByText("hello")).isEmpty();
+      assertThat(noteService.findNotesByText("odbye wor")).extracting(Note::getId)
+          .containsExactly(n1.getId());
+      assertThat(noteService.findNotesByText("ивет, ми")).extracting(Note::getId)
+          .containsExactly(n2.getId());
+
+      noteService.deleteNote(n2.getId());
+      assertThat(noteService.findNotesByText("привет")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("findNotesByWords: все слова запроса, целые слова, регистр не важен")
+    void shouldFindByWholeWords() {
+      Note n1 = noteService.addNote("A", "Core Java, and more", Set.of());
+      noteService.addNote("B", "javascript core", Set.of());
+
+      assertThat(noteService.findNotesByWords("java CORE")).extracting(Note::getId)
+          .containsExactly(n1.getId());
+      assertThat(noteService.findNotesByWords("core")).hasSize(2);
+      assertThat(noteService.findNotesByWords(" ,.")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("findNotesByWords: индекс слов следует за изменением и удалением")
+    void shouldKeepWordIndexInSync() {
+      Note n1 = noteService.addNote("A", "old words", Set.of());
+
+      noteService.updateNoteText(n1.getId(), "A", "Новые слова");
+      assertThat(noteService.findNotesByWords("old")).isEmpty();
+      assertThat(noteService.findNotesByWords("новые")).extracting(Note::getId)
+          .containsExactly(n1.getId());
+
+      noteService.deleteNote(n1.getId());
+      assertThat(noteService.findNotesByWords("новые")).isEmpty();
+    }
+
     @Test
     @DisplayName("findNotesByTags: один тег")
     void shouldFindBySingleTag() {
@@ -339,6 +457,46 @@ class NoteServiceTest {
       result = noteService.findNotesByTags(null);
       assertThat(result).isEmpty();
     }
+
+    @Test
+    @DisplayName("findNotesByTags: индекс учитывает изменение и удаление тегов")
+    void shouldKeepTagIndexInSync() {
+      Note n1 = noteService.addNote("A", "t", Set.of("java"));
+      Note n2 = noteService.addNote("B", "t", Set.of("java", "tdd"));
+
+      noteService.addTagToNote(n1.getId(), "TDD");
+      assertThat(noteService.findNotesByTags(Set.of("java", "tdd"))).extracting(Note::getId)
+          .containsExactly(n1.getId(), n2.getId());
+
+      noteService.removeTagFromNote(n2.getId(), "tdd");
+      assertThat(noteService.findNotesByTags(Set.of("tdd"))).extracting(Note::getId)
+          .containsExactly(n1.getId());
+
+      n2.addTag("Kotlin");
+      assertThat(noteService.findNotesByTags(Set.of("kotlin"))).extracting(Note::getId)
+          .containsExactly(n2.getId());
+
+      noteService.deleteNote(n1.getId());
+      assertThat(noteService.findNotesByTags(Set.of("tdd"))).isEmpty();
+      n1.addTag("kotlin");
+      assertThat(noteService.findNotesByTags(Set.of("kotlin"))).extracting(Note::getId)
+          .containsExactly(n2.getId());
+    }
+
+    @Test
+    @DisplayName("findNotesByAnyTag и findNotesByTags с исключениями: логические ИЛИ и НЕ")
+    void shouldCombineTagsWithOrAndNot() {
+      Note n1 = noteService.addNote("A", "t", Set.of("java", "tdd"));
+      Note n2 = noteService.addNote("B", "t", Set.of("java"));
+      Note n3 = noteService.addNote("C", "t", Set.of("kotlin"));
+
+      assertThat(noteService.findNotesByAnyTag(Set.of("TDD", "kotlin", "unknown")))
+          .extracting(Note::getId).containsExactly(n1.getId(), n3.getId());
+      assertThat(noteService.findNotesByTags(Set.of("java"), Set.of("tdd", "unknown")))
+          .extracting(Note::getId).containsExactly(n2.getId());
+      assertThat(noteService.findNotesByTags(Set.of("java"), null)).hasSize(2);
+      assertThat(noteService.findNotesByTags(Set.of("unknown"), Set.of("tdd"))).isEmpty();
+    }
   }
 
   @Nested
@@ -363,6 +521,37 @@ class NoteServiceTest {
       assertThat(tags).containsExactlyInAnyOrder("java", "tdd", "gradle", "build");
     }
 
+    @Test
+    @DisplayName("Одинаковые теги разных заметок хранятся одной строкой")
+    void shouldShareTagStringsBetweenNotes() {
+      Note a = noteService.addNote("A", "t", Set.of("Dictionary"));
+      Note b = noteService.addNote("B", "t", Set.of("dictionary"));
+
+      assertThat(a.getTags()).containsExactly("dictionary");
+      assertThat(a.getTags().iterator().next()).isSameAs(b.getTags().iterator().next());
+      assertThat(a.getTags()).doesNotContain("DICTIONARY");
+      assertThatThrownBy(() -> noteService.addTagToNote(a.getId(), ""))
+          .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("getTagCounts: счётчики следуют за добавлением, удалением тегов и заметок")
+    void shouldCountTagUsages() {
+      Note a = noteService.addNote("A", "t", Set.of("Java", "tdd"));
+      Note b = noteService.addNote("B", "t", Set.of("java"));
+
+      assertThat(noteService.getTagCounts()).containsExactlyInAnyOrderEntriesOf(
+          Map.of("java", 2, "tdd", 1));
+
+      noteService.removeTagFromNote(a.getId(), "tdd");
+      noteService.addTagToNote(b.getId(), "gradle");
+      noteService.deleteNote(a.getId());
+
+      assertThat(noteService.getTagCounts()).containsExactlyInAnyOrderEntriesOf(
+          Map.of("java", 1, "gradle", 1));
+      assertThat(noteService.getAllTags()).containsExactlyInAnyOrder("java", "gradle");
+    }
+
     @Nested
     @DisplayName("equals и hashCode")
     class Equality {
@@ -0,0 +1,117 @@
+package ru.mentee.power.notes;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+@DisplayName("Тесты обхода заметок без копирования")
+class NoteStreamTest {
+
+  @ParameterizedTest
+  @EnumSource(StorageType.class)
+  @DisplayName("Поток, параллельный поток и forEachNote выдают те же заметки, что getAllNotes")
+  void shouldVisitEveryNoteOnce(StorageType storageType) {
+    for (boolean concurrent : new boolean[] {false, true}) {
+      NoteService service = new NoteService(storageType, concurrent);
+      for (int i = 0; i < 20_000; i++) {
+        service.addNote("T" + i, "text", null);
+      }
+      for (int id = 1; id <= 20_000; id += 3) {
+        service.deleteNote(id);
+      }
+      service.compactStorage();
+      List<Note> expected = service.getAllNotes();
+
+      assertThat(service.streamNotes().toList()).containsExactlyInAnyOrderElementsOf(expected);
+      assertThat(service.streamNotes().parallel().toList())
+          .containsExactlyInAnyOrderElementsOf(expected);
+      List<Note> visited = new ArrayList<>();
+      service.forEachNote(visited::add);
+      assertThat(visited).containsExactlyInAnyOrderElementsOf(expected);
+      assertThat(collectAfterSplitting(service.streamNotes().spliterator()))
+          .containsExactlyInAnyOrderElementsOf(expected);
+    }
+  }
+
+  @Test
+  @DisplayName("Блочное хранилище делится до мелких частей и сохраняет порядок id")
+  void shouldSplitChunkedStoreInIdOrder() {
+    ChunkedNoteStore store = new ChunkedNoteStore();
+    for (int id = 1; id <= 1000; id++) {
+      store.put(new Note(id, "T", "t"));
+    }
+
+    List<Note> ordered = collectAfterSplitting(store.spliterator());
+
+    assertThat(ordered).extracting(Note::getId).isSorted().hasSize(1000);
+    assertThat(store.spliterator().hasCharacteristics(Spliterator.ORDERED)).isTrue();
+  }
+
+  @ParameterizedTest
+  @EnumSource(value = StorageType.class, names = {"HASH_MAP", "CHUNKED_ARRAY"})
+  @DisplayName("Параллельный обход во время изменений видит неизменные заметки ровно один раз")
+  void shouldBeWeaklyConsistent(StorageType storageType) throws InterruptedException {
+    NoteService service = new NoteService(storageType, true);
+    int stable = 10_000;
+    for (int i = 0; i < stable; i++) {
+      service.addNote("T" + i, "text", null);
+    }
+    AtomicBoolean stop = new AtomicBoolean();
+    Thread writer = new Thread(() -> {
+      while (!stop.get()) {
+        Note note = service.addNote("N", "new", null);
+        if (note.getId() % 2 == 0) {
+          service.deleteNote(note.getId());
+        }
+      }
+    });
+    writer.start();
+    try {
+      for (int round = 0; round < 10; round++) {
+        Map<Integer, Long> seen = service.streamNotes().parallel()
+            .collect(Collectors.groupingBy(Note::getId, Collectors.counting()));
+        assertThat(seen.values()).containsOnly(1L);
+        for (int id = 1; id <= stable; id++) {
+          assertThat(seen).containsKey(id);
+        }
+      }
+    } finally {
+      stop.set(true);
+      writer.join();
+    }
+  }
+
+  /**
+   * Делит разделитель, пока части не станут мелкими, и обходит части по порядку через
+   * tryAdvance.
+   */
+  private static List<Note> collectAfterSplitting(Spliterator<Note> spliterator) {
+    Deque<Spliterator<Note>> pending = new ArrayDeque<>();
+    pending.push(spliterator);
+    List<Note> notes = new ArrayList<>();
+    while (!pending.isEmpty()) {
+      Spliterator<Note> current = pending.pop();
+      Spliterator<Note> prefix = current.estimateSize() > 16 ? current.trySplit() : null;
+      if (prefix != null) {
+        pending.push(current);
+        pending.push(prefix);
+      } else {
+        while (current.tryAdvance(notes::add)) {
+          // Все действия выполняются в tryAdvance.
+        }
+      }
+    }
+    return notes;
+  }
+}
@@ -0,0 +1,289 @@
+package ru.mentee.power.notes;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+@DisplayName("Тесты для NoteService с журналом изменений")
+class PersistentNoteServiceTest {
+
+  @TempDir
+  Path directory;
+
+  @ParameterizedTest
+  @EnumSource(FsyncPolicy.class)
+  @DisplayName("После повторного открытия восстанавливаются заметки, теги и счётчик id")
+  void shouldRestoreStateAfterReopen(FsyncPolicy policy) throws IOException {
+    int kept;
+    try (NoteService service = NoteService.open(directory, policy)) {
+      Note note = service.addNote("A", "hello world", Set.of("Java", "tdd"));
+      Note other = service.addNote("B", "text", null);
+      Note deleted = service.addNote("C", "gone", null);
+      service.updateNoteText(note.getId(), "A2", "hello again");
+      service.removeTagFromNote(note.getId(), "TDD");
+      service.addTagToNote(other.getId(), "Kotlin");
+      other.setTitle("B2");
+      service.deleteNote(deleted.getId());
+      kept = note.getId();
+    }
+
+    try (NoteService service = NoteService.open(directory, policy)) {
+      assertThat(service.getAllNotes()).extracting(Note::getTitle).containsExactly("A2", "B2");
+      Note note = service.getNoteById(kept).orElseThrow();
+      assertThat(note.getText()).isEqualTo("hello again");
+      assertThat(note.getTags()).containsExactly("java");
+      assertThat(note.getCreationDate()).isEqualTo(LocalDate.now());
+      assertThat(service.findNotesByWords("again")).containsExactly(note);
+      assertThat(service.findNotesByTags(Set.of("kotlin"))).extracting(Note::getTitle)
+          .containsExactly("B2");
+      assertThat(service.addNote("D", "d", null).getId()).isEqualTo(4);
+    }
+  }
+
+  @Test
+  @DisplayName("Групповая фиксация: записи параллельных потоков не теряются и не перемешиваются")
+  void shouldPersistConcurrentWrites() throws Exception {
+    int threads = 8;
+    int perThread = 200;
+    try (NoteService service = NoteService.open(directory, FsyncPolicy.PER_OPERATION)) {
+      ExecutorService executor = Executors.newFixedThreadPool(threads);
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < perThread; i++) {
+            Note note = service.addNote("T", "text", Set.of("a"));
+            service.addTagToNote(note.getId(), "b");
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+      executor.shutdown();
+    }
+
+    try (NoteService service = NoteService.open(directory, FsyncPolicy.NONE)) {
+      assertThat(service.getAllNotes()).hasSize(threads * perThread);
+      assertThat(service.findNotesByTags(Set.of("a", "b"))).hasSize(threads * perThread);
+    }
+  }
+
+  @Test
+  @DisplayName("Снимок вместе с хвостом журнала восстанавливает состояние")
+  void shouldRestoreFromSnapshotAndLogTail() throws IOException {
+    try (NoteService service = NoteService.open(directory, FsyncPolicy.NONE)) {
+      Note note = service.addNote("A", "before", Set.of("java"));
+      Note last = service.addNote("B", "b", null);
+      service.snapshot();
+      service.updateNoteText(note.getId(), "A2", "after snapshot");
+      service.addTagToNote(note.getId(), "tdd");
+      service.deleteNote(last.getId());
+      service.addNote("C", "c", null);
+    }
+    assertThat(directory.resolve(NoteService.SNAPSHOT_FILE)).exists();
+
+    try (NoteService service = NoteService.open(directory, FsyncPolicy.NONE)) {
+      assertThat(service.getAllNotes()).extracting(Note::getTitle).containsExactly("A2", "C");
+      assertThat(service.findNotesByTags(Set.of("java", "tdd"))).extracting(Note::getText)
+          .containsExactly("after snapshot");
+      service.deleteNote(3);
+      service.snapshot();
+    }
+    try (NoteService service = NoteService.open(directory, FsyncPolicy.NONE)) {
+      assertThat(service.addNote("D", "d", null).getId()).isEqualTo(4);
+    }
+  }
+
+  @Test
+  @DisplayName("Пакет заметок восстанавливается из журнала и из снимка")
+  void shouldRestoreBatchFromLogAndSnapshot() throws IOException {
+    List<NoteDraft> drafts = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      drafts.add(new NoteDraft("T" + i, "text " + i, Set.of("tag" + i % 10)));
+    }
+    try (NoteService service = NoteService.open(directory, FsyncPolicy.NONE)) {
+      service.addNotes(drafts.subList(0, 500));
+      service.snapshot();
+      service.addNotes(drafts.subList(500, 1000));
+    }
+
+    try (NoteService service = NoteService.open(directory, FsyncPolicy.NONE)) {
+      assertThat(service.getAllNotes()).extracting(Note::getTitle)
+          .containsExactlyElementsOf(drafts.stream().map(NoteDraft::title).toList());
+      assertThat(service.findNotesByTags(Set.of("tag3"))).hasSize(100);
+      assertThat(service.findNotesByWords("999")).extracting(Note::getId).containsExactly(1000);
+      assertThat(service.addNote("X", "x", null).getId()).isEqualTo(1001);
+    }
+  }
+
+  @Test
+  @DisplayName("После снимка журнал хранит только изменения после него")
+  void shouldTruncateLogAfterSnapshot() throws IOException {
+    Path log = directory.resolve(NoteService.LOG_FILE);
+    try (NoteService service = NoteService.open(directory, FsyncPolicy.NONE)) {
+      for (int i = 0; i < 100; i++) {
+        service.addNote("T" + i, "text " + i, Set.of("java"));
+      }
+      service.snapshot();
+      assertThat(Files.size(log)).isEqualTo(NoteLog.FILE_HEADER_BYTES);
+      service.addTagToNote(1, "tdd");
+      service.removeTagFromNote(2, "java");
+      service.addNote("X", "x", Set.of("java"));
+    }
+
+    try (NoteService service = NoteService.open(directory, FsyncPolicy.NONE)) {
+      assertThat(service.getAllNotes()).hasSize(101);
+      assertThat(service.findNotesByTags(Set.of("java"))).hasSize(100);
+      assertThat(service.findNotesByTags(Set.of("java", "tdd"))).extracting(Note::getId)
+          .containsExactly(1);
+      service.snapshot();
+      service.deleteNote(3);
+    }
+    try (NoteService service = NoteService.open(directory, FsyncPolicy.NONE)) {
+      assertThat(service.getAllNotes()).hasSize(100);
+      assertThat(service.addNote("Y", "y", null).getId()).isEqualTo(102);
+    }
+  }
+
+  @Test
+  @DisplayName("Повреждённый снимок игнорируется, и полный журнал проигрывается целиком")
+  void shouldFallBackToFullLogWhenSnapshotIsCorrupt() throws IOException {
+    try (NoteService service = NoteService.open(directory, FsyncPolicy.NONE)) {
+      service.addNote("A", "a", Set.of("java"));
+      service.addNote("B", "b", null);
+    }
+    Files.write(directory.resolve(NoteService.SNAPSHOT_FILE), new byte[] {1, 2, 3});
+
+    try (NoteService service = NoteService.open(directory, FsyncPolicy.NONE)) {
+      assertThat(service.getAllNotes()).extracting(Note::getTitle).containsExactly("A", "B");
+    }
+  }
+
+  @Test
+  @DisplayName("Без целого снимка укороченный журнал не открывается")
+  void shouldRejectTruncatedLogWithoutSnapshot() throws IOException {
+    try (NoteService service = NoteService.open(directory, FsyncPolicy.NONE)) {
+      service.addNote("A", "a", Set.of("java"));
+      service.snapshot();
+      service.addNote("B", "b", null);
+    }
+    Path snapshot = directory.resolve(NoteService.SNAPSHOT_FILE);
+    byte[] bytes = Files.readAllBytes(snapshot);
+    bytes[bytes.length - 1] ^= 1;
+    Files.write(snapshot, bytes);
+
+    assertThatThrownBy(() -> NoteService.open(directory, FsyncPolicy.NONE))
+        .isInstanceOf(IOException.class)
+        .hasMessageContaining("snapshot");
+  }
+
+  @Test
+  @DisplayName("Недописанная запись в конце журнала отбрасывается")
+  void shouldDropTornTail() throws IOException {
+    try (NoteService service = NoteService.open(directory, FsyncPolicy.NONE)) {
+      service.addNote("A", "a", Set.of());
+    }
+    Path log = directory.resolve(NoteService.LOG_FILE);
+    long size = Files.size(log);
+    try (FileChannel channel = FileChannel.open(log, StandardOpenOption.APPEND)) {
+      channel.write(ByteBuffer.wrap(new byte[] {0, 0, 0, 50, 1, 2, 3}));
+    }
+
+    try (NoteService service = NoteService.open(directory, FsyncPolicy.NONE)) {
+      assertThat(Files.size(log)).isEqualTo(size);
+      service.addNote("B", "b", Set.of());
+    }
+    try (NoteService service = NoteService.open(directory, FsyncPolicy.NONE)) {
+      assertThat(service.getAllNotes()).extracting(Note::getTitle).containsExactly("A", "B");
+    }
+  }
+
+  @Test
+  @DisplayName("Заголовок и текст из updateNoteText восстанавливаются только вместе")
+  void shouldLogTitleAndTextAsOneRecord() throws IOException {
+    Path log = directory.resolve(NoteService.LOG_FILE);
+    long before;
+    try (NoteService service = NoteService.open(directory, FsyncPolicy.NONE)) {
+      Note note = service.addNote("A", "hello world", Set.of());
+      before = Files.size(log);
+      service.updateNoteText(note.getId(), "B", "goodbye world");
+    }
+    long after = Files.size(log);
+
+    try (NoteService service = NoteService.open(directory, FsyncPolicy.NONE)) {
+      Note note = service.getNoteById(1).orElseThrow();
+      assertThat(note.getTitle()).isEqualTo("B");
+      assertThat(note.getText()).isEqualTo("goodbye world");
+    }
+    // Обрыв посреди обновления отрезает всю запись: половины изменения в журнале не бывает.
+    try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+      channel.truncate((before + after) / 2);
+    }
+    try (NoteService service = NoteService.open(directory, FsyncPolicy.NONE)) {
+      Note note = service.getNoteById(1).orElseThrow();
+      assertThat(note.getTitle()).isEqualTo("A");
+      assertThat(note.getText()).isEqualTo("hello world");
+      assertThat(service.findNotesByWords("hello")).containsExactly(note);
+    }
+  }
+
+  @Test
+  @DisplayName("Если удаление не записано в журнал, заметка остаётся в сервисе и индексах")
+  void shouldKeepNoteWhenDeleteIsNotLogged() throws IOException {
+    NoteService service = NoteService.open(directory, FsyncPolicy.NONE);
+    Note note = service.addNote("A", "hello world", Set.of("java"));
+    service.close();
+
+    assertThatThrownBy(() -> service.deleteNote(note.getId()))
+        .isInstanceOf(UncheckedIOException.class);
+    assertThat(service.getNoteById(note.getId())).containsSame(note);
+    assertThat(service.findNotesByWords("hello")).containsExactly(note);
+    assertThat(service.findNotesByTags(Set.of("java"))).containsExactly(note);
+  }
+
+  @Test
+  @DisplayName("Если изменение не записано в журнал, заметка и индексы остаются прежними")
+  void shouldRollBackChangesThatAreNotLogged() throws IOException {
+    NoteService service = NoteService.open(directory, FsyncPolicy.NONE);
+    Note note = service.addNote("A", "hello world", Set.of("java"));
+    service.close();
+
+    assertThatThrownBy(() -> note.setTitle("B")).isInstanceOf(UncheckedIOException.class);
+    assertThatThrownBy(() -> note.setText("goodbye"))
+        .isInstanceOf(UncheckedIOException.class);
+    assertThatThrownBy(() -> service.updateNoteText(note.getId(), "B", "goodbye"))
+        .isInstanceOf(UncheckedIOException.class);
+    assertThatThrownBy(() -> service.addTagToNote(note.getId(), "kotlin"))
+        .isInstanceOf(UncheckedIOException.class);
+    assertThatThrownBy(() -> service.removeTagFromNote(note.getId(), "java"))
+        .isInstanceOf(UncheckedIOException.class);
+
+    assertThat(note.getTitle()).isEqualTo("A");
+    assertThat(note.getText()).isEqualTo("hello world");
+    assertThat(note.getTags()).containsExactly("java");
+    assertThat(service.findNotesByWords("hello")).containsExactly(note);
+    assertThat(service.findNotesByWords("goodbye")).isEmpty();
+    assertThat(service.findNotesByText("goodb")).isEmpty();
+    assertThat(service.findNotesByTags(Set.of("java"))).containsExactly(note);
+    assertThat(service.findNotesByTags(Set.of("kotlin"))).isEmpty();
+  }
+}
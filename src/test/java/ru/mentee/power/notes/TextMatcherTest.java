@@ -0,0 +1,95 @@
+package ru.mentee.power.notes;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+@DisplayName("Тесты для TextMatcher")
+class TextMatcherTest {
+
+  /** Маленький алфавит: много частичных совпадений, а 'a' и 'š', '1' и 'б' делят ячейку сдвига. */
+  private static final String ALPHABET = "aAbBбБяЯ ё1бš";
+
+  @ParameterizedTest(name = "vectorize = {0}")
+  @ValueSource(booleans = {false, true})
+  @DisplayName("Совпадает с contains по приведённым строкам для коротких и длинных запросов")
+  void shouldAgreeWithContains(boolean vectorize) {
+    Random random = new Random(23);
+    for (int i = 0; i < 20_000; i++) {
+      String text = randomString(random, random.nextInt(200));
+      String query = random.nextInt(4) == 0 && text.length() > 20
+          ? text.substring(random.nextInt(text.length() - 20)).substring(0, 1 + random.nextInt(20))
+          : randomString(random, 1 + random.nextInt(16));
+      TextMatcher matcher = new TextMatcher(query, vectorize);
+
+      assertThat(matcher.matches(TextTokenizer.fold(text)))
+          .as("%s in %s", query, text)
+          .isEqualTo(TextTokenizer.fold(text).contains(TextTokenizer.fold(query)));
+    }
+  }
+
+  @ParameterizedTest(name = "vectorize = {0}")
+  @ValueSource(booleans = {false, true})
+  @DisplayName("Длинный запрос находится без учёта регистра в начале, середине и конце текста")
+  void shouldFindLongQueryAnywhere(boolean vectorize) {
+    TextMatcher matcher = new TextMatcher("Быстрая Коричневая", vectorize);
+    assertThat(matcher.pattern()).isEqualTo("быстрая коричневая");
+
+    assertThat(matcher.matches(TextTokenizer.fold("БЫСТРАЯ КОРИЧНЕВАЯ лиса"))).isTrue();
+    assertThat(matcher.matches(TextTokenizer.fold("очень быстрая коричневая лиса"))).isTrue();
+    assertThat(matcher.matches(TextTokenizer.fold("лиса быстрая Коричневая"))).isTrue();
+    assertThat(matcher.matches(TextTokenizer.fold("быстрая коричневаЯ"))).isTrue();
+    assertThat(matcher.matches(TextTokenizer.fold("быстрая коричнева"))).isFalse();
+    assertThat(matcher.matches("")).isFalse();
+  }
+
+  @ParameterizedTest(name = "vectorize = {0}")
+  @ValueSource(booleans = {false, true})
+  @DisplayName("Длинный запрос находится на любой позиции, в том числе на границах блоков")
+  void shouldFindLongQueryAtEveryPosition(boolean vectorize) {
+    boolean vectorAvailable = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+    TextMatcher matcher = new TextMatcher("Искомая фраза", vectorize);
+    assertThat(matcher.isVectorized()).isEqualTo(vectorize && vectorAvailable);
+    assertThat(new TextMatcher("фраза", vectorize).isVectorized()).isFalse();
+
+    String filler = "ф".repeat(500);
+    for (int position = 0; position <= filler.length(); position++) {
+      String text = filler.substring(0, position) + "искомая фраза" + filler.substring(position);
+      assertThat(matcher.matches(text)).as("position %d", position).isTrue();
+      assertThat(matcher.matches(text.replace("фраза", "фраз"))).isFalse();
+    }
+  }
+
+  @ParameterizedTest(name = "vectorize = {0}")
+  @ValueSource(booleans = {false, true})
+  @DisplayName("В тексте длиннее буфера сканера запрос находится и на стыках кусков")
+  void shouldFindLongQueryAcrossChunks(boolean vectorize) {
+    TextMatcher matcher = new TextMatcher("искомая фраза", vectorize);
+    String filler = "ф".repeat(3 * VectorTextScanner.CHUNK_CHARS);
+    for (int chunk = 1; chunk <= 2; chunk++) {
+      // Куски перекрываются, поэтому их стыки немного левее кратных размеру буфера позиций.
+      int boundary = chunk * VectorTextScanner.CHUNK_CHARS;
+      for (int position = boundary - 200; position <= boundary + 200; position++) {
+        String text = filler.substring(0, position) + "искомая фраза" + filler.substring(position);
+        assertThat(matcher.matches(text)).as("position %d", position).isTrue();
+        assertThat(matcher.matches(text.replace("фраза", "фраз"))).isFalse();
+      }
+    }
+
+    TextMatcher longer = new TextMatcher(filler.substring(VectorTextScanner.CHUNK_CHARS) + "я",
+        vectorize);
+    assertThat(longer.matches(filler + "я")).isTrue();
+    assertThat(longer.matches(filler)).isFalse();
+  }
+
+  private static String randomString(Random random, int length) {
+    StringBuilder builder = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      builder.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+    }
+    return builder.toString();
+  }
+}
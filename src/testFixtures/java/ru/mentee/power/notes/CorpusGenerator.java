@@ -0,0 +1,239 @@
+package ru.mentee.power.notes;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Детерминированный генератор синтетического корпуса заметок для бенчмарков и нагрузочных тестов.
+ *
+ * <p>Распределения приближены к реальным заметкам:
+ * <ul>
+ *   <li>теги выбираются по закону Ципфа: несколько тегов встречаются почти везде, а длинный хвост —
+ *       в единичных заметках;</li>
+ *   <li>длина текста распределена логнормально вокруг медианы: много коротких заметок и редкие
+ *       очень длинные;</li>
+ *   <li>текст составлен из частотных русских и английских слов (тоже по Ципфу), доля кириллицы
+ *       задаётся параметром.</li>
+ * </ul>
+ *
+ * <p>Заметка с номером {@code i} зависит только от зерна и {@code i}: у каждой свой генератор
+ * случайных чисел, поэтому корпус одинаков при любом числе потоков и порядке генерации.
+ * Экземпляр неизменяем и потокобезопасен.
+ */
+final class CorpusGenerator {
+
+  /** Показатель закона Ципфа для слов естественного языка. */
+  private static final double WORD_EXPONENT = 1.0;
+
+  private static final int MAX_TAGS_PER_NOTE = 5;
+
+  private static final int MAX_TITLE_WORDS = 6;
+
+  /** Частотные русские слова, от самых частых к редким. */
+  private static final String[] CYRILLIC_WORDS = {
+      "и", "в", "не", "на", "что", "с", "как", "это", "по", "но", "к", "для", "из", "у", "за",
+      "от", "так", "все", "уже", "или", "если", "только", "когда", "нужно", "можно", "код",
+      "задача", "проект", "сервис", "заметка", "данные", "запрос", "ошибка", "тест", "версия",
+      "файл", "поиск", "список", "индекс", "память", "поток", "метод", "класс", "сборка",
+      "встреча", "решение", "вопрос", "пример", "работа", "время", "идея", "план", "отчёт",
+      "документ", "сервер", "клиент", "очередь", "журнал", "снимок", "производительность",
+      "блокировка", "транзакция", "репозиторий", "конфигурация", "зависимость", "миграция"};
+
+  /** Частотные английские слова, от самых частых к редким. */
+  private static final String[] LATIN_WORDS = {
+      "the", "a", "to", "of", "and", "in", "is", "for", "on", "with", "it", "this", "that", "be",
+      "as", "at", "by", "from", "not", "or", "java", "code", "test", "fix", "bug", "build",
+      "release", "api", "service", "note", "data", "query", "index", "cache", "thread", "lock",
+      "heap", "stream", "request", "response", "latency", "throughput", "review", "deploy",
+      "config", "module", "gradle", "kotlin", "spring", "docker", "kubernetes", "postgres",
+      "benchmark", "profiler", "snapshot", "journal", "replication", "serialization",
+      "allocation", "contention", "regression", "refactoring", "deadline", "retrospective"};
+
+  /** Основа имён тегов; при большем числе тегов к ним добавляется номер. */
+  private static final String[] TAG_STEMS = {
+      "java", "работа", "todo", "идеи", "учёба", "backend", "встречи", "книги", "tdd", "linux",
+      "личное", "perf", "баги", "docs", "планы", "sql", "алгоритмы", "git", "здоровье", "travel"};
+
+  private static final double[] CYRILLIC_CDF = zipf(CYRILLIC_WORDS.length, WORD_EXPONENT);
+
+  private static final double[] LATIN_CDF = zipf(LATIN_WORDS.length, WORD_EXPONENT);
+
+  private final long seed;
+
+  private final String[] tags;
+
+  private final double[] tagCdf;
+
+  private final double textLengthMu;
+
+  private final double textLengthSigma;
+
+  private final double cyrillicShare;
+
+  /**
+   * Создаёт генератор с типичными параметрами: 1000 тегов с показателем Ципфа 1.1, медиана
+   * длины текста 200 символов, 70% русских слов.
+   *
+   * @param seed зерно; одинаковое зерно даёт одинаковый корпус
+   */
+  CorpusGenerator(long seed) {
+    this(seed, 1000, 1.1, 200, 1.0, 0.7);
+  }
+
+  /**
+   * Создаёт генератор.
+   *
+   * @param seed             зерно; одинаковое зерно даёт одинаковый корпус
+   * @param tagCardinality   число различных тегов
+   * @param tagExponent      показатель закона Ципфа для тегов (больше — сильнее перекос)
+   * @param medianTextLength медиана длины текста в символах
+   * @param textLengthSigma  параметр σ логнормального распределения длины текста
+   * @param cyrillicShare    доля русских слов, от 0 до 1
+   */
+  CorpusGenerator(long seed, int tagCardinality, double tagExponent, int medianTextLength,
+      double textLengthSigma, double cyrillicShare) {
+    if (tagCardinality <= 0 || medianTextLength <= 0) {
+      throw new IllegalArgumentException("Tag cardinality and text length must be positive");
+    }
+    this.seed = seed;
+    this.tags = new String[tagCardinality];
+    for (int rank = 0; rank < tagCardinality; rank++) {
+      String stem = TAG_STEMS[rank % TAG_STEMS.length];
+      tags[rank] = rank < TAG_STEMS.length ? stem : stem + "-" + rank / TAG_STEMS.length;
+    }
+    this.tagCdf = zipf(tagCardinality, tagExponent);
+    this.textLengthMu = Math.log(medianTextLength);
+    this.textLengthSigma = textLengthSigma;
+    this.cyrillicShare = cyrillicShare;
+  }
+
+  /**
+   * Содержимое одной сгенерированной заметки.
+   *
+   * @param title заголовок
+   * @param text  текст
+   * @param tags  теги, от 0 до 5
+   */
+  record Entry(String title, String text, Set<String> tags) {
+  }
+
+  /**
+   * Возвращает заметку корпуса с номером {@code index}.
+   *
+   * @param index номер заметки, неотрицательный
+   * @return содержимое заметки
+   */
+  Entry entry(long index) {
+    SplittableRandom random = new SplittableRandom(mix(seed ^ mix(index)));
+    StringBuilder title = new StringBuilder();
+    int titleWords = 1 + random.nextInt(MAX_TITLE_WORDS);
+    for (int i = 0; i < titleWords; i++) {
+      if (i > 0) {
+        title.append(' ');
+      }
+      title.append(word(random));
+    }
+    title.setCharAt(0, Character.toUpperCase(title.charAt(0)));
+
+    int length = (int) Math.min(Integer.MAX_VALUE / 2,
+        Math.max(1, Math.exp(textLengthMu + textLengthSigma * random.nextGaussian())));
+    StringBuilder text = new StringBuilder(length + 32);
+    while (text.length() < length) {
+      if (!text.isEmpty()) {
+        text.append(random.nextInt(12) == 0 ? ". " : " ");
+      }
+      text.append(word(random));
+    }
+
+    Set<String> noteTags = new LinkedHashSet<>();
+    int tagCount = Math.min(random.nextInt(MAX_TAGS_PER_NOTE + 1), tags.length);
+    while (noteTags.size() < tagCount) {
+      noteTags.add(tags[sample(tagCdf, random)]);
+    }
+    return new Entry(title.toString(), text.toString(), noteTags);
+  }
+
+  /**
+   * Добавляет в сервис заметки корпуса с номерами от {@code 0} до {@code count - 1}.
+   *
+   * <p>В конкурентный сервис заметки добавляются параллельно во всех ядрах. Набор заметок от
+   * этого не меняется, но идентификаторы, выданные сервисом, могут идти в другом порядке, чем
+   * номера заметок корпуса.
+   *
+   * @param service сервис
+   * @param count   число заметок
+   */
+  void populate(NoteService service, int count) {
+    IntStream indexes = IntStream.range(0, count);
+    if (service.isConcurrent()) {
+      indexes = indexes.parallel();
+    }
+    indexes.forEach(i -> {
+      Entry entry = entry(i);
+      service.addNote(entry.title(), entry.text(), entry.tags());
+    });
+  }
+
+  /**
+   * Возвращает тег по рангу частоты.
+   *
+   * @param rank ранг: 0 — самый частый тег
+   * @return имя тега
+   */
+  String tag(int rank) {
+    return tags[rank];
+  }
+
+  /**
+   * Возвращает число различных тегов.
+   *
+   * @return число тегов
+   */
+  int tagCardinality() {
+    return tags.length;
+  }
+
+  /**
+   * Возвращает случайное слово словаря корпуса с той же частотой, что и в текстах.
+   *
+   * @param random источник случайности
+   * @return слово
+   */
+  String word(SplittableRandom random) {
+    return random.nextDouble() < cyrillicShare
+        ? CYRILLIC_WORDS[sample(CYRILLIC_CDF, random)]
+        : LATIN_WORDS[sample(LATIN_CDF, random)];
+  }
+
+  /**
+   * Перемешивает биты числа (финализатор MurmurHash3). Без него зёрна соседних заметок отличались
+   * бы на шаг самого {@link SplittableRandom}, и их последовательности совпадали бы со сдвигом.
+   */
+  private static long mix(long value) {
+    value = (value ^ value >>> 33) * 0xFF51AFD7ED558CCDL;
+    value = (value ^ value >>> 33) * 0xC4CEB9FE1A85EC53L;
+    return value ^ value >>> 33;
+  }
+
+  /** Функция распределения закона Ципфа по рангам {@code 0..size-1}. */
+  private static double[] zipf(int size, double exponent) {
+    double[] cdf = new double[size];
+    double sum = 0;
+    for (int rank = 0; rank < size; rank++) {
+      sum += 1 / Math.pow(rank + 1, exponent);
+      cdf[rank] = sum;
+    }
+    for (int rank = 0; rank < size; rank++) {
+      cdf[rank] /= sum;
+    }
+    return cdf;
+  }
+
+  private static int sample(double[] cdf, SplittableRandom random) {
+    int index = Arrays.binarySearch(cdf, random.nextDouble());
+    return Math.min(index < 0 ? -index - 1 : index, cdf.length - 1);
+  }
+}